@@ -0,0 +1,92 @@
+package kct.co.id.skilltest.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Responses of writes sent with an {@code Idempotency-Key}, kept for {@code ttl}. The first request with a key runs,
+ * a retry with the same key and payload waits for it and gets the same response. A failed run is forgotten so the
+ * client can retry it, a key reused for a different payload is rejected.
+ */
+@Component
+public class IdempotencyCache {
+    private static final int MAX_KEY_LENGTH = 255;
+    private final Cache<String, Execution> cache;
+    private final ObjectMapper objectMapper;
+    private final Duration waitTimeout;
+
+    public IdempotencyCache(ObjectMapper objectMapper,
+                            @Value("${user.idempotency.maximum-size:100000}") long maximumSize,
+                            @Value("${user.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${user.idempotency.wait-timeout:30s}") Duration waitTimeout) {
+        this.objectMapper = objectMapper;
+        this.waitTimeout = waitTimeout;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Object request, Callable<T> action) throws Exception {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Idempotency-Key must be 1 to %s characters", MAX_KEY_LENGTH));
+        }
+        Execution execution = new Execution(fingerprint(request), new CompletableFuture<>());
+        Execution existing = cache.asMap().putIfAbsent(key, execution);
+        if (existing != null) {
+            if (!Arrays.equals(existing.fingerprint(), execution.fingerprint())) {
+                throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key was already used for a different request");
+            }
+            return (T) await(existing);
+        }
+        try {
+            T response = action.call();
+            execution.response().complete(response);
+            return response;
+        } catch (Throwable e) {
+            // an Error too, otherwise the never-completed run stays cached and every retry waits it out
+            cache.asMap().remove(key, execution);
+            execution.response().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Object await(Execution execution) throws Exception {
+        try {
+            return execution.response().get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress", e);
+        } catch (ExecutionException e) {
+            // the duplicate shares the outcome of the run it waited for
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private byte[] fingerprint(Object request) throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+    }
+
+    private record Execution(byte[] fingerprint, CompletableFuture<Object> response) {
+    }
+}
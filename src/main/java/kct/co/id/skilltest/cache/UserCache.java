@@ -0,0 +1,68 @@
+package kct.co.id.skilltest.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import kct.co.id.skilltest.dto.UserDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+@Component
+public class UserCache {
+    private static final int GENERATION_STRIPES = 1024;
+    private final Cache<Long, UserDTO> cache;
+    // bumped by every eviction of an id hashing to the stripe, a sharing neighbour only costs a skipped put
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public UserCache(@Value("${user.cache.maximum-size:10000}") long maximumSize,
+                     @Value("${user.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    public UserDTO get(Long id, Function<Long, UserDTO> loader) {
+        UserDTO userDTO = cache.getIfPresent(id);
+        if (userDTO == null) {
+            // loaded outside Caffeine's compute, which holds a monitor that would pin a virtual thread during the query
+            int stripe = stripe(id);
+            long generation = generations.get(stripe);
+            userDTO = loader.apply(id);
+            if (userDTO != null) {
+                cache.put(id, userDTO);
+                // an eviction during the load may be for a write the load did not see, so the loaded row is not kept
+                if (generations.get(stripe) != generation) {
+                    cache.asMap().remove(id, userDTO);
+                }
+            }
+        }
+        return userDTO;
+    }
+
+    public void evict(Long id) {
+        generations.incrementAndGet(stripe(id));
+        cache.invalidate(id);
+    }
+
+    private static int stripe(Long id) {
+        return Math.floorMod(Long.hashCode(id), GENERATION_STRIPES);
+    }
+
+    public Map<String, Long> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("evictionCount", stats.evictionCount());
+        return result;
+    }
+}
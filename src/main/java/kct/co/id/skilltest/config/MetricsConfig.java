@@ -0,0 +1,69 @@
+package kct.co.id.skilltest.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import kct.co.id.skilltest.mapper.UserMapper;
+import kct.co.id.skilltest.metrics.RequestMetricsInterceptor;
+import kct.co.id.skilltest.metrics.RequestTimings;
+import kct.co.id.skilltest.metrics.StatementCountingInspector;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Bean
+    public static BeanPostProcessor requestTimingsPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addInvocationListener(
+                            invocation -> RequestTimings.addDatabase(invocation.getDuration(TimeUnit.NANOSECONDS))));
+                }
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof UserMapper) {
+                    ProxyFactory proxyFactory = new ProxyFactory(bean);
+                    proxyFactory.setProxyTargetClass(true);
+                    proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+                        long start = System.nanoTime();
+                        try {
+                            return invocation.proceed();
+                        } finally {
+                            RequestTimings.addMapping(System.nanoTime() - start);
+                        }
+                    });
+                    return proxyFactory.getProxy();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer statementCountingCustomizer(@Value("${user.metrics.sql-sample-rate:0}") double sampleRate) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new StatementCountingInspector(sampleRate));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RequestMetricsInterceptor(meterRegistry)).addPathPatterns("/users/**");
+    }
+}
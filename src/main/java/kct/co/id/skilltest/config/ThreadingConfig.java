@@ -0,0 +1,25 @@
+package kct.co.id.skilltest.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+
+@Slf4j
+@Configuration
+public class ThreadingConfig {
+    @EventListener(ApplicationReadyEvent.class)
+    public void logThreadingMode(ApplicationReadyEvent event) {
+        Environment environment = event.getApplicationContext().getEnvironment();
+        boolean requested = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            log.info("Serving requests on virtual threads, run with -Djdk.tracePinnedThreads=short to report pinning");
+        } else if (requested) {
+            log.warn("Virtual threads requested but not supported on Java {}, serving requests on platform threads", Runtime.version().feature());
+        } else {
+            log.info("Serving requests on platform threads");
+        }
+    }
+}
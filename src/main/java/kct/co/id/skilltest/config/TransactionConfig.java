@@ -0,0 +1,25 @@
+package kct.co.id.skilltest.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+@Configuration
+public class TransactionConfig {
+
+    /**
+     * Template for write transactions. The timeout bounds how long a row stamped with {@code updated_at} can stay
+     * uncommitted, which {@code user.changes.safety-lag} relies on.
+     */
+    @Bean
+    public TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager,
+                                                   @Value("${user.write.transaction-timeout:20s}") Duration timeout) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setTimeout((int) timeout.toSeconds());
+        return transactionTemplate;
+    }
+}
@@ -1,44 +1,205 @@
 package kct.co.id.skilltest.controller;
 
 import jakarta.validation.Valid;
+import kct.co.id.skilltest.cache.IdempotencyCache;
+import kct.co.id.skilltest.config.JacksonConfig;
 import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.enumerate.ExportFormat;
 import kct.co.id.skilltest.model.BaseResponse;
+import kct.co.id.skilltest.model.BatchItemResult;
+import kct.co.id.skilltest.model.UserChange;
+import kct.co.id.skilltest.model.UserFilter;
 import kct.co.id.skilltest.model.UserPayload;
+import kct.co.id.skilltest.model.UserStats;
+import kct.co.id.skilltest.model.UserSuggestion;
+import kct.co.id.skilltest.model.WriteBehindStatus;
+import kct.co.id.skilltest.service.UserChangeService;
+import kct.co.id.skilltest.service.UserExportService;
 import kct.co.id.skilltest.service.UserService;
+import kct.co.id.skilltest.service.UserWriteBehindService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.UUID;
+import java.util.Locale;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/users")
 public class UserController {
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
     @Autowired
     private UserService userService;
+    @Autowired
+    private UserExportService userExportService;
+    @Autowired
+    private UserChangeService userChangeService;
+    @Autowired
+    private UserWriteBehindService userWriteBehindService;
+    @Autowired
+    private IdempotencyCache idempotencyCache;
 
     @GetMapping
-    public BaseResponse<List<UserDTO>> get() throws Exception {
-        return userService.get();
+    public BaseResponse<List<UserDTO>> get(UserFilter filter,
+                                           @RequestParam(value = "after", required = false) Long after,
+                                           @RequestParam(value = "size", required = false) Integer size) throws Exception {
+        return userService.get(filter, after, size);
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> stream(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        MediaType mediaType = MediaType.APPLICATION_JSON;
+        for (MediaType accepted : MediaType.parseMediaTypes(accept)) {
+            if (JacksonConfig.APPLICATION_SMILE.equalsTypeAndSubtype(accepted)) {
+                mediaType = JacksonConfig.APPLICATION_SMILE;
+                break;
+            }
+            if (MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(accepted)) {
+                mediaType = MediaType.APPLICATION_CBOR;
+                break;
+            }
+        }
+        MediaType contentType = mediaType;
+        StreamingResponseBody body = outputStream -> userService.stream(outputStream, contentType);
+        return ResponseEntity
+                .ok()
+                .contentType(contentType)
+                .body(body);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                                        @RequestParam(value = "ordered", defaultValue = "true") boolean ordered,
+                                                        @RequestParam(value = "parallelism", required = false) Integer parallelism) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Unsupported export format %s", format));
+        }
+        StreamingResponseBody body = outputStream -> userExportService.export(outputStream, exportFormat, ordered, parallelism);
+        return ResponseEntity
+                .ok()
+                .contentType(exportFormat.getMediaType())
+                .body(body);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<BaseResponse<UserDTO>> getById(@PathVariable("id") Long id) throws Exception {
+        BaseResponse<UserDTO> response = userService.getById(id);
+        // a matching If-None-Match is answered with 304 by Spring once the ETag is set
+        return ResponseEntity
+                .ok()
+                .eTag(eTag(response.getData()))
+                .body(response);
+    }
+
+    @GetMapping("/changes")
+    public BaseResponse<List<UserChange>> getChanges(@RequestParam(value = "since", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+                                                     @RequestParam(value = "token", required = false) String token,
+                                                     @RequestParam(value = "size", required = false) Integer size) throws Exception {
+        return userChangeService.getChanges(since, token, size);
+    }
+
+    @GetMapping("/suggest")
+    public BaseResponse<List<UserSuggestion>> suggest(@RequestParam("q") String query,
+                                                      @RequestParam(value = "limit", required = false) Integer limit) throws Exception {
+        return userService.suggest(query, limit);
     }
 
-    @GetMapping("/{guid}")
-    public BaseResponse<UserDTO> getById(@PathVariable("id") UUID id) throws Exception {
-        return userService.getById(id);
+    @GetMapping("/stats")
+    public BaseResponse<UserStats> getStats() throws Exception {
+        return userService.getStats();
+    }
+
+    @GetMapping("/cache/stats")
+    public BaseResponse<Map<String, Long>> getCacheStats() throws Exception {
+        return userService.getCacheStats();
     }
 
     @PostMapping
-    public BaseResponse<UserDTO> post(@RequestBody @Valid UserPayload userPayload) throws Exception {
-        return userService.post(userPayload);
+    public BaseResponse<UserDTO> post(@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                      @RequestBody @Valid UserPayload userPayload) throws Exception {
+        if (idempotencyKey == null) {
+            return userService.post(userPayload);
+        }
+        return idempotencyCache.execute(idempotencyKey, userPayload, () -> userService.post(userPayload));
+    }
+
+    @PostMapping("/batch")
+    public BaseResponse<List<BatchItemResult>> postBatch(@RequestBody List<UserPayload> userPayloads) throws Exception {
+        return userService.postBatch(userPayloads);
     }
 
     @PutMapping("/{id}")
-    public BaseResponse<UserDTO> put(@PathVariable("id") Long id, @RequestBody @Valid UserPayload userPayload) throws Exception {
-        return userService.put(id, userPayload);
+    public ResponseEntity<BaseResponse<UserDTO>> put(@PathVariable("id") Long id,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                     @RequestBody @Valid UserPayload userPayload) throws Exception {
+        BaseResponse<UserDTO> response = userService.put(id, userPayload, expectedVersion(id, ifMatch));
+        return ResponseEntity
+                .ok()
+                .eTag(eTag(response.getData()))
+                .body(response);
+    }
+
+    @PutMapping(value = "/{id}", headers = "Prefer=respond-async")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BaseResponse<Boolean> putAsync(@PathVariable("id") Long id, @RequestBody @Valid UserPayload userPayload) throws Exception {
+        return userWriteBehindService.enqueue(id, userPayload);
+    }
+
+    @GetMapping("/write-behind")
+    public BaseResponse<WriteBehindStatus> getWriteBehindStatus() throws Exception {
+        return userWriteBehindService.getStatus();
+    }
+
+    @PatchMapping("/{id}")
+    public ResponseEntity<BaseResponse<UserDTO>> patch(@PathVariable("id") Long id,
+                                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                       @RequestBody Map<String, Object> changes) throws Exception {
+        BaseResponse<UserDTO> response = userService.patch(id, changes, expectedVersion(id, ifMatch));
+        return ResponseEntity
+                .ok()
+                .eTag(eTag(response.getData()))
+                .body(response);
     }
 
     @DeleteMapping("/{id}")
     public BaseResponse<Boolean> delete(@PathVariable("id") Long id) throws Exception {
         return userService.delete(id);
     }
+
+    private static String eTag(UserDTO userDTO) {
+        if (userDTO.getVersion() == null) {
+            return null;
+        }
+        return String.format("\"%s-%s\"", userDTO.getId(), userDTO.getVersion());
+    }
+
+    /**
+     * Version named by an {@code If-Match} header, {@code null} when the write is unconditional. A tag that was not
+     * issued for this user can never match, so it is rejected up front like a stale one.
+     */
+    private static Long expectedVersion(Long id, String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        String prefix = "\"" + id + "-";
+        if (tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+            try {
+                return Long.valueOf(tag.substring(prefix.length(), tag.length() - 1));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "If-Match does not match the current user version");
+    }
 }
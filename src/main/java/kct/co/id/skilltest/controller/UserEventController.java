@@ -0,0 +1,20 @@
+package kct.co.id.skilltest.controller;
+
+import kct.co.id.skilltest.service.UserFeedService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/users/events")
+public class UserEventController {
+    @Autowired
+    private UserFeedService userFeedService;
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                @RequestParam(value = "lastEventId", required = false) String lastEventIdParam) throws Exception {
+        return userFeedService.subscribe(lastEventId != null ? lastEventId : lastEventIdParam);
+    }
+}
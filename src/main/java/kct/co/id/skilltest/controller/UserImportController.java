@@ -0,0 +1,42 @@
+package kct.co.id.skilltest.controller;
+
+import kct.co.id.skilltest.model.BaseResponse;
+import kct.co.id.skilltest.model.ImportJobStatus;
+import kct.co.id.skilltest.service.UserImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+
+@RestController
+@RequestMapping("/users/imports")
+public class UserImportController {
+    @Autowired
+    private UserImportService userImportService;
+
+    // the body is taken as a raw stream so the upload is spooled to disk while it arrives instead of being buffered whole
+    @PostMapping(consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BaseResponse<ImportJobStatus>> post(InputStream inputStream,
+                                                              @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType) throws Exception {
+        BaseResponse<ImportJobStatus> response = userImportService.importUsers(inputStream, contentType);
+        return ResponseEntity
+                .accepted()
+                .location(URI.create("/users/imports/" + response.getData().getId()))
+                .body(response);
+    }
+
+    @GetMapping
+    public BaseResponse<List<ImportJobStatus>> get() throws Exception {
+        return userImportService.getJobs();
+    }
+
+    @GetMapping("/{id}")
+    public BaseResponse<ImportJobStatus> getById(@PathVariable("id") String id) throws Exception {
+        return userImportService.getJob(id);
+    }
+}
@@ -0,0 +1,51 @@
+package kct.co.id.skilltest.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the primary. Must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, otherwise the connection is taken before
+ * the transaction is marked read-only and every transaction lands on the primary. Reads that fill a shared cache go
+ * through {@link #onPrimary}.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    public static void pinToPrimary() {
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+    }
+
+    public static void unpin() {
+        PINNED_TO_PRIMARY.remove();
+    }
+
+    /**
+     * Runs a read on the primary even inside a read-only transaction. Meant for reads whose result is cached for every
+     * client, so a replica that has not caught up cannot put a row older than the last commit into the cache, and for
+     * reads that hand out a position the client never reads behind again.
+     */
+    public static <T> T onPrimary(Supplier<T> read) {
+        boolean pinned = PINNED_TO_PRIMARY.get() != null;
+        pinToPrimary();
+        try {
+            return read.get();
+        } finally {
+            if (!pinned) {
+                unpin();
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && PINNED_TO_PRIMARY.get() == null) {
+            return REPLICA;
+        }
+        return PRIMARY;
+    }
+}
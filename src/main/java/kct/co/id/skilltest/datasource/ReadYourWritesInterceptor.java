@@ -0,0 +1,52 @@
+package kct.co.id.skilltest.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.time.Duration;
+
+/**
+ * Keeps a client's reads on the primary for a while after its own write, so it does not read a replica that has not
+ * caught up yet. Clients are told apart by the {@code X-Client-Id} header, falling back to the remote address.
+ */
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWritesInterceptor(Duration window) {
+        recentWriters = Caffeine
+                .newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String client = request.getHeader(CLIENT_ID_HEADER);
+        if (client == null || client.isBlank()) {
+            client = request.getRemoteAddr();
+        }
+        if (!HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())) {
+            recentWriters.put(client, Boolean.TRUE);
+        }
+        if (recentWriters.getIfPresent(client) != null) {
+            ReadWriteRoutingDataSource.pinToPrimary();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ReadWriteRoutingDataSource.unpin();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReadWriteRoutingDataSource.unpin();
+    }
+}
@@ -1,16 +1,13 @@
 package kct.co.id.skilltest.entity;
 
-import com.fasterxml.jackson.annotation.JsonFormat;
-import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
-import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
-import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
-import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
-import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
 import jakarta.persistence.*;
 import kct.co.id.skilltest.enumerate.Gender;
+import kct.co.id.skilltest.util.UserKeys;
 import lombok.Data;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 
@@ -20,15 +17,25 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+@DynamicUpdate
 @Accessors(chain = true)
-@Table(name = "users", uniqueConstraints = {@UniqueConstraint(columnNames = {"phone_number", "email"})})
+@Table(name = "users", uniqueConstraints = {@UniqueConstraint(columnNames = {"phone_number", "email"})}, indexes = {
+        @Index(name = "idx_users_email_key", columnList = "email_key"),
+        @Index(name = "idx_users_phone_number", columnList = "phone_number"),
+        @Index(name = "idx_users_active_start_date", columnList = "active_start_date, id"),
+        @Index(name = "idx_users_active_end_date", columnList = "active_end_date, id"),
+        @Index(name = "idx_users_updated_at", columnList = "updated_at, id")
+})
 public class User implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
     @Id
     @Column(name = "id", nullable = false)
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "first_name ", nullable = false, columnDefinition = "varchar(30)")
@@ -37,19 +44,17 @@ public class User implements Serializable {
     @Column(name = "last_name ", columnDefinition = "varchar(30)")
     private String lastName;
 
-    @Transient
-    private String fullName;
-
     @Column(name = "email ", nullable = false, columnDefinition = "varchar(50)")
     private String email;
 
+    // normalized copy of email that search compares against, so its index serves case-insensitive lookups
+    @Column(name = "email_key", columnDefinition = "varchar(50)")
+    private String emailKey;
+
     @Column(name = "phone_number ", nullable = false, columnDefinition = "varchar(30)")
     private String phoneNumber;
 
     @Column(name = "date_of_birth")
-    @JsonSerialize(using = LocalDateSerializer.class)
-    @JsonDeserialize(using = LocalDateDeserializer.class)
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
     private LocalDate dateOfBirth;
 
     @Column(name = "gender")
@@ -61,28 +66,26 @@ public class User implements Serializable {
     private Address address;
 
     @Column(name = "active_start_date", nullable = false)
-    @JsonSerialize(using = LocalDateSerializer.class)
-    @JsonDeserialize(using = LocalDateDeserializer.class)
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
     private LocalDate activeStartDate;
 
     @Column(name = "active_end_date", nullable = false)
-    @JsonSerialize(using = LocalDateSerializer.class)
-    @JsonDeserialize(using = LocalDateDeserializer.class)
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
     private LocalDate activeEndDate;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @CreatedDate
     @Column(name = "created_at", columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
-    @JsonSerialize(using = LocalDateTimeSerializer.class)
-    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime createdAt = LocalDateTime.now();
 
     @LastModifiedDate
     @Column(name = "updated_at", columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP")
-    @JsonSerialize(using = LocalDateTimeSerializer.class)
-    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime updatedAt = LocalDateTime.now();
+
+    @PrePersist
+    @PreUpdate
+    private void normalizeEmail() {
+        emailKey = UserKeys.normalizeEmail(email);
+    }
 }
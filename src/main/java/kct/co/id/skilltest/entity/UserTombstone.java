@@ -0,0 +1,34 @@
+package kct.co.id.skilltest.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@NoArgsConstructor
+@Accessors(chain = true)
+@Table(name = "user_tombstones", indexes = {
+        @Index(name = "idx_user_tombstones_deleted_at", columnList = "deleted_at, id")
+})
+public class UserTombstone implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // the id of the deleted user, sequences never hand it out again
+    @Id
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    public UserTombstone(Long id, LocalDateTime deletedAt) {
+        this.id = id;
+        this.deletedAt = deletedAt;
+    }
+}
@@ -0,0 +1,5 @@
+package kct.co.id.skilltest.enumerate;
+
+public enum OverflowPolicy {
+    DROP, DISCONNECT
+}
@@ -0,0 +1,19 @@
+package kct.co.id.skilltest.event;
+
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.enumerate.UserChangeType;
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * A user's active window opened ({@link UserChangeType#ACTIVATED}) or closed ({@link UserChangeType#EXPIRED}) on
+ * {@code day}.
+ */
+@Value
+public class UserActiveWindowEvent {
+    Long id;
+    UserChangeType type;
+    LocalDate day;
+    UserDTO user;
+}
@@ -0,0 +1,23 @@
+package kct.co.id.skilltest.event;
+
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.enumerate.UserChangeType;
+import lombok.Value;
+
+/**
+ * Published inside the writing transaction, listeners use {@code @TransactionalEventListener} to see it only once
+ * the change is committed. {@code previous} is null for a create and {@code current} is null for a delete.
+ */
+@Value
+public class UserChangedEvent {
+    Long id;
+    UserDTO previous;
+    UserDTO current;
+
+    public UserChangeType getType() {
+        if (previous == null) {
+            return UserChangeType.CREATED;
+        }
+        return current == null ? UserChangeType.DELETED : UserChangeType.UPDATED;
+    }
+}
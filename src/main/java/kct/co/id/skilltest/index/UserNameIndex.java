@@ -0,0 +1,132 @@
+package kct.co.id.skilltest.index;
+
+import kct.co.id.skilltest.event.UserChangedEvent;
+import kct.co.id.skilltest.model.UserSuggestion;
+import kct.co.id.skilltest.repository.UserRepository;
+import kct.co.id.skilltest.util.UserNames;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Sorted map of normalized full names to users for prefix lookups. Every name is indexed once per word, starting at
+ * that word, so "doe" finds "John Doe" as well as "Doe Jane". Keys end with the user id to keep equal names apart.
+ */
+@Slf4j
+@Component
+public class UserNameIndex implements SmartInitializingSingleton {
+    private static final char SEPARATOR = '\u0000';
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private final ConcurrentSkipListMap<String, UserSuggestion> tokens = new ConcurrentSkipListMap<>();
+    private final Map<Long, String> names = new ConcurrentHashMap<>();
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<UserRepository.Names> users = userRepository.streamNames()) {
+                users.forEach(user -> put(user.getId(), UserNames.fullName(user.getFirstName(), user.getLastName())));
+            }
+        });
+        log.info("Name index warmed with {} users and {} tokens", names.size(), tokens.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.getCurrent() == null) {
+            remove(event.getId());
+        } else {
+            put(event.getId(), event.getCurrent().getFullName());
+        }
+    }
+
+    public void put(Long id, String fullName) {
+        // compute serializes changes to one user, so its old tokens are always the ones removed
+        names.compute(id, (key, previous) -> {
+            if (Objects.equals(previous, fullName)) {
+                return previous;
+            }
+            if (previous != null) {
+                unindex(id, previous);
+            }
+            if (fullName == null) {
+                return null;
+            }
+            index(id, fullName);
+            return fullName;
+        });
+    }
+
+    public void remove(Long id) {
+        names.computeIfPresent(id, (key, previous) -> {
+            unindex(id, previous);
+            return null;
+        });
+    }
+
+    public List<UserSuggestion> suggest(String query, int limit) {
+        String prefix = normalize(query);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, UserSuggestion> matches = new LinkedHashMap<>();
+        for (Map.Entry<String, UserSuggestion> entry : tokens.tailMap(prefix).entrySet()) {
+            if (matches.size() >= limit || !entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            matches.putIfAbsent(entry.getValue().getId(), entry.getValue());
+        }
+        return new ArrayList<>(matches.values());
+    }
+
+    private void index(Long id, String fullName) {
+        UserSuggestion suggestion = new UserSuggestion(id, fullName);
+        for (String token : tokenize(fullName)) {
+            tokens.put(token + SEPARATOR + id, suggestion);
+        }
+    }
+
+    private void unindex(Long id, String fullName) {
+        for (String token : tokenize(fullName)) {
+            tokens.remove(token + SEPARATOR + id);
+        }
+    }
+
+    private static List<String> tokenize(String fullName) {
+        String normalized = normalize(fullName);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        List<String> suffixes = new ArrayList<>();
+        suffixes.add(normalized);
+        for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+            suffixes.add(normalized.substring(i + 1));
+        }
+        return suffixes;
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+        return NON_ALPHANUMERIC.matcher(decomposed.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+}
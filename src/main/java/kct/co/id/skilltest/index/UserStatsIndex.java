@@ -0,0 +1,245 @@
+package kct.co.id.skilltest.index;
+
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.event.UserChangedEvent;
+import kct.co.id.skilltest.model.UserStats;
+import kct.co.id.skilltest.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * User counts per bucket, rebuilt with GROUP BY queries at startup and every midnight and kept current in between
+ * from committed {@link UserChangedEvent}s. Age bands and the active count depend on the day, which is why the
+ * midnight rebuild exists.
+ * <p>
+ * The queries of a rebuild share one repeatable-read snapshot. Events committed while it runs are buffered and, once
+ * the queries are done, the ones the snapshot does not contain yet are replayed onto the rebuilt counts before they
+ * replace the current ones. Whether the snapshot contains an event is decided from the user version it saw.
+ */
+@Slf4j
+@Component
+public class UserStatsIndex implements SmartInitializingSingleton {
+    private static final String UNKNOWN = "UNKNOWN";
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    private static final int VERSION_QUERY_SIZE = 1000;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Buckets buckets = new Buckets(LocalDate.now());
+    private List<UserChangedEvent> buffered;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    @Scheduled(cron = "${user.stats.rebuild-cron:0 0 0 * * *}")
+    public void rebuild() {
+        lock.lock();
+        try {
+            // started before the snapshot, so every event the snapshot might miss is captured
+            buffered = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Buckets rebuilt = new Buckets(LocalDate.now());
+                for (UserRepository.Bucket bucket : userRepository.countByGender()) {
+                    rebuilt.total.add(bucket.getUsers());
+                    Buckets.add(rebuilt.gender, key(bucket.getBucket()), bucket.getUsers());
+                }
+                for (UserRepository.Bucket bucket : userRepository.countByCountry()) {
+                    Buckets.add(rebuilt.country, key(bucket.getBucket()), bucket.getUsers());
+                }
+                for (UserRepository.Bucket bucket : userRepository.countByCity()) {
+                    Buckets.add(rebuilt.city, key(bucket.getBucket()), bucket.getUsers());
+                }
+                for (UserRepository.Bucket bucket : userRepository.countByDateOfBirth()) {
+                    Buckets.add(rebuilt.ageBand, ageBand((LocalDate) bucket.getBucket(), rebuilt.day), bucket.getUsers());
+                }
+                rebuilt.active.add(userRepository.countActiveOn(rebuilt.day));
+                lock.lock();
+                try {
+                    // still inside the snapshot, so the versions below are the ones the counts were taken from
+                    replay(rebuilt, buffered);
+                    buckets = rebuilt;
+                } finally {
+                    lock.unlock();
+                }
+            });
+        } finally {
+            lock.lock();
+            try {
+                buffered = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+        log.info("User stats rebuilt for {} users", buckets.total.sum());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        lock.lock();
+        try {
+            buckets.apply(event);
+            if (buffered != null) {
+                buffered.add(event);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public UserStats snapshot() {
+        Buckets current = buckets;
+        long total = current.total.sum();
+        long active = current.active.sum();
+        return UserStats
+                .builder()
+                .total(total)
+                .active(active)
+                .inactive(total - active)
+                .gender(Buckets.snapshot(current.gender))
+                .country(Buckets.snapshot(current.country))
+                .city(Buckets.snapshot(current.city))
+                .ageBand(Buckets.snapshot(current.ageBand))
+                .asOf(current.day)
+                .rebuiltAt(current.rebuiltAt)
+                .build();
+    }
+
+    /**
+     * Applies the buffered events the snapshot does not contain. Per user they are in commit order: with the row in
+     * the snapshot at version v, the events that changed a later version are missing from it; without the row, the
+     * user was either created after the snapshot, so all events are missing, or deleted before it, so none are.
+     */
+    private void replay(Buckets rebuilt, List<UserChangedEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Map<Long, List<UserChangedEvent>> byUser = new LinkedHashMap<>();
+        for (UserChangedEvent event : events) {
+            byUser.computeIfAbsent(event.getId(), id -> new ArrayList<>()).add(event);
+        }
+        Map<Long, Long> versions = new HashMap<>();
+        List<Long> ids = new ArrayList<>(byUser.keySet());
+        for (int from = 0; from < ids.size(); from += VERSION_QUERY_SIZE) {
+            for (UserRepository.Versions version : userRepository.findVersions(ids.subList(from, Math.min(from + VERSION_QUERY_SIZE, ids.size())))) {
+                versions.put(version.getId(), version.getVersion());
+            }
+        }
+        byUser.forEach((id, userEvents) -> {
+            Long version = versions.get(id);
+            for (UserChangedEvent event : userEvents) {
+                boolean missing = version == null
+                        ? userEvents.stream().noneMatch(e -> e.getCurrent() == null)
+                        : event.getPrevious() != null && event.getPrevious().getVersion() >= version;
+                if (missing) {
+                    rebuilt.apply(event);
+                }
+            }
+        });
+    }
+
+    private static String key(Object bucket) {
+        return bucket == null ? UNKNOWN : bucket.toString();
+    }
+
+    private static String ageBand(LocalDate dateOfBirth, LocalDate day) {
+        if (dateOfBirth == null) {
+            return UNKNOWN;
+        }
+        int age = Period.between(dateOfBirth, day).getYears();
+        if (age < 18) {
+            return "0-17";
+        } else if (age < 25) {
+            return "18-24";
+        } else if (age < 35) {
+            return "25-34";
+        } else if (age < 45) {
+            return "35-44";
+        } else if (age < 55) {
+            return "45-54";
+        } else if (age < 65) {
+            return "55-64";
+        }
+        return "65+";
+    }
+
+    private static class Buckets {
+        private final LocalDate day;
+        private final LocalDateTime rebuiltAt = LocalDateTime.now();
+        private final LongAdder total = new LongAdder();
+        private final LongAdder active = new LongAdder();
+        private final Map<String, LongAdder> gender = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> country = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> city = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> ageBand = new ConcurrentHashMap<>();
+
+        Buckets(LocalDate day) {
+            this.day = day;
+        }
+
+        void apply(UserChangedEvent event) {
+            if (event.getPrevious() != null) {
+                apply(event.getPrevious(), -1);
+            }
+            if (event.getCurrent() != null) {
+                apply(event.getCurrent(), 1);
+            }
+        }
+
+        void apply(UserDTO user, int sign) {
+            total.add(sign);
+            if (user.getActiveStartDate() != null && user.getActiveEndDate() != null
+                    && !user.getActiveStartDate().isAfter(day) && !user.getActiveEndDate().isBefore(day)) {
+                active.add(sign);
+            }
+            add(gender, key(user.getGender()), sign);
+            add(country, key(user.getAddress() == null ? null : user.getAddress().getCountry()), sign);
+            add(city, key(user.getAddress() == null ? null : user.getAddress().getCity()), sign);
+            add(ageBand, ageBand(user.getDateOfBirth(), day), sign);
+        }
+
+        static void add(Map<String, LongAdder> counters, String key, long delta) {
+            counters.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+        }
+
+        static Map<String, Long> snapshot(Map<String, LongAdder> counters) {
+            Map<String, Long> snapshot = new TreeMap<>();
+            counters.forEach((key, counter) -> {
+                long sum = counter.sum();
+                if (sum > 0) {
+                    snapshot.put(key, sum);
+                }
+            });
+            return snapshot;
+        }
+    }
+}
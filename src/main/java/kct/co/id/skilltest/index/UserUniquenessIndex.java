@@ -0,0 +1,176 @@
+package kct.co.id.skilltest.index;
+
+import kct.co.id.skilltest.entity.User;
+import kct.co.id.skilltest.repository.UserRepository;
+import kct.co.id.skilltest.util.UserKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Normalized email and phone number to owning user id. Keys claimed by an insert that has no id yet
+ * are owned by a negative placeholder until {@link Reservation#commit(Long)}.
+ */
+@Slf4j
+@Component
+public class UserUniquenessIndex implements SmartInitializingSingleton {
+    private final Map<String, Long> emails = new ConcurrentHashMap<>();
+    private final Map<String, Long> phoneNumbers = new ConcurrentHashMap<>();
+    private final AtomicLong placeholders = new AtomicLong();
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<UserRepository.UniqueKeys> keys = userRepository.streamUniqueKeys()) {
+                keys.forEach(key -> add(key.getId(), key.getEmail(), key.getPhoneNumber()));
+            }
+        });
+        log.info("Uniqueness index warmed with {} emails and {} phone numbers", emails.size(), phoneNumbers.size());
+    }
+
+    public Reservation reserve(Long userId, String email, String phoneNumber) {
+        long owner = userId != null ? userId : placeholders.decrementAndGet();
+        Reservation reservation = new Reservation(owner, normalizeEmail(email), normalizePhoneNumber(phoneNumber));
+        reservation.emailClaimed = claim(emails, reservation.email, owner, User::getEmail, UserUniquenessIndex::normalizeEmail);
+        if (reservation.emailClaimed == null) {
+            reservation.conflict = "Email already registered";
+            return reservation;
+        }
+        reservation.phoneNumberClaimed = claim(phoneNumbers, reservation.phoneNumber, owner, User::getPhoneNumber, UserUniquenessIndex::normalizePhoneNumber);
+        if (reservation.phoneNumberClaimed == null) {
+            reservation.conflict = "Phone number already registered";
+            reservation.release();
+        }
+        return reservation;
+    }
+
+    public void add(Long userId, String email, String phoneNumber) {
+        String emailKey = normalizeEmail(email);
+        String phoneNumberKey = normalizePhoneNumber(phoneNumber);
+        if (emailKey != null) {
+            emails.put(emailKey, userId);
+        }
+        if (phoneNumberKey != null) {
+            phoneNumbers.put(phoneNumberKey, userId);
+        }
+    }
+
+    public void remove(Long userId, String email, String phoneNumber) {
+        String emailKey = normalizeEmail(email);
+        String phoneNumberKey = normalizePhoneNumber(phoneNumber);
+        if (emailKey != null) {
+            emails.remove(emailKey, userId);
+        }
+        if (phoneNumberKey != null) {
+            phoneNumbers.remove(phoneNumberKey, userId);
+        }
+    }
+
+    public static String normalizeEmail(String email) {
+        return UserKeys.normalizeEmail(email);
+    }
+
+    public static String normalizePhoneNumber(String phoneNumber) {
+        return phoneNumber == null ? null : phoneNumber.replaceAll("[^0-9+]", "");
+    }
+
+    /**
+     * Returns {@code true} when the key was newly claimed, {@code false} when the owner already held it
+     * and {@code null} when another user owns it.
+     */
+    private Boolean claim(Map<String, Long> keys, String key, long owner,
+                          Function<User, String> column, Function<String, String> normalizer) {
+        if (key == null) {
+            return false;
+        }
+        while (true) {
+            Long current = keys.putIfAbsent(key, owner);
+            if (current == null) {
+                return true;
+            }
+            if (current == owner) {
+                return false;
+            }
+            if (current < 0) {
+                // another insert of the same key is still in flight
+                return null;
+            }
+            // rows written around this service (or rolled back) can leave stale owners, only the conflict path pays for the check
+            boolean taken = userRepository
+                    .findById(current)
+                    .map(user -> key.equals(normalizer.apply(column.apply(user))))
+                    .orElse(false);
+            if (taken) {
+                return null;
+            }
+            if (keys.replace(key, current, owner)) {
+                return true;
+            }
+        }
+    }
+
+    public class Reservation {
+        private final long owner;
+        private final String email;
+        private final String phoneNumber;
+        private Boolean emailClaimed;
+        private Boolean phoneNumberClaimed;
+        private String conflict;
+
+        private Reservation(long owner, String email, String phoneNumber) {
+            this.owner = owner;
+            this.email = email;
+            this.phoneNumber = phoneNumber;
+        }
+
+        public String getConflict() {
+            return conflict;
+        }
+
+        public void commit(Long userId) {
+            commit(userId, null, null);
+        }
+
+        public void commit(Long userId, String previousEmail, String previousPhoneNumber) {
+            if (email != null) {
+                emails.put(email, userId);
+            }
+            if (phoneNumber != null) {
+                phoneNumbers.put(phoneNumber, userId);
+            }
+            String previousEmailKey = normalizeEmail(previousEmail);
+            if (previousEmailKey != null && !previousEmailKey.equals(email)) {
+                emails.remove(previousEmailKey, userId);
+            }
+            String previousPhoneNumberKey = normalizePhoneNumber(previousPhoneNumber);
+            if (previousPhoneNumberKey != null && !previousPhoneNumberKey.equals(phoneNumber)) {
+                phoneNumbers.remove(previousPhoneNumberKey, userId);
+            }
+        }
+
+        public void release() {
+            if (Objects.equals(emailClaimed, true)) {
+                emails.remove(email, owner);
+            }
+            if (Objects.equals(phoneNumberClaimed, true)) {
+                phoneNumbers.remove(phoneNumber, owner);
+            }
+        }
+    }
+}
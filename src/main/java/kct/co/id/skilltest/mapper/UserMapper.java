@@ -0,0 +1,167 @@
+package kct.co.id.skilltest.mapper;
+
+import kct.co.id.skilltest.dto.AddressDTO;
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.entity.Address;
+import kct.co.id.skilltest.entity.User;
+import kct.co.id.skilltest.enumerate.Gender;
+import kct.co.id.skilltest.model.UserPayload;
+import kct.co.id.skilltest.util.UserNames;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+@Component
+public class UserMapper {
+
+    public UserDTO toDTO(User user) {
+        if (user == null) {
+            return null;
+        }
+        UserDTO userDTO = new UserDTO();
+        userDTO.setId(user.getId());
+        userDTO.setFirstName(user.getFirstName());
+        userDTO.setLastName(user.getLastName());
+        userDTO.setFullName(UserNames.fullName(user.getFirstName(), user.getLastName()));
+        userDTO.setEmail(user.getEmail());
+        userDTO.setPhoneNumber(user.getPhoneNumber());
+        userDTO.setDateOfBirth(user.getDateOfBirth());
+        userDTO.setGender(user.getGender());
+        userDTO.setAddress(toDTO(user.getAddress()));
+        userDTO.setActiveStartDate(user.getActiveStartDate());
+        userDTO.setActiveEndDate(user.getActiveEndDate());
+        userDTO.setCreatedAt(user.getCreatedAt());
+        userDTO.setUpdatedAt(user.getUpdatedAt());
+        userDTO.setVersion(user.getVersion());
+        return userDTO;
+    }
+
+    public AddressDTO toDTO(Address address) {
+        if (address == null) {
+            return null;
+        }
+        AddressDTO addressDTO = new AddressDTO();
+        addressDTO.setStreetAddress(address.getStreetAddress());
+        addressDTO.setCity(address.getCity());
+        addressDTO.setState(address.getState());
+        addressDTO.setPostalCode(address.getPostalCode());
+        addressDTO.setCountry(address.getCountry());
+        return addressDTO;
+    }
+
+    public User toEntity(UserPayload userPayload) {
+        User user = new User();
+        copy(userPayload, user);
+        return user;
+    }
+
+    public void copy(UserPayload userPayload, User user) {
+        user.setFirstName(userPayload.getFirstName());
+        user.setLastName(userPayload.getLastName());
+        user.setEmail(userPayload.getEmail());
+        user.setPhoneNumber(userPayload.getPhoneNumber());
+        user.setDateOfBirth(userPayload.getDateOfBirth());
+        user.setGender(userPayload.getGender());
+        user.setActiveStartDate(userPayload.getActiveStartDate());
+        user.setActiveEndDate(userPayload.getActiveEndDate());
+        if (userPayload.getAddress() != null) {
+            Address address = user.getAddress() == null ? new Address() : user.getAddress();
+            copy(userPayload.getAddress(), address);
+            user.setAddress(address);
+        }
+    }
+
+    public void copy(AddressDTO addressDTO, Address address) {
+        address.setStreetAddress(addressDTO.getStreetAddress());
+        address.setCity(addressDTO.getCity());
+        address.setState(addressDTO.getState());
+        address.setPostalCode(addressDTO.getPostalCode());
+        address.setCountry(addressDTO.getCountry());
+    }
+
+    /**
+     * Applies the fields present in {@code changes} and returns whether any column value changed.
+     * The nested {@code address} entry is left to {@link #patch(Map, Address)}.
+     */
+    public boolean patch(Map<String, Object> changes, User user) {
+        boolean changed = false;
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            Object value = change.getValue();
+            changed |= switch (change.getKey()) {
+                case "firstName" -> set(user.getFirstName(), required(change.getKey(), asString(value)), user::setFirstName);
+                case "lastName" -> set(user.getLastName(), asString(value), user::setLastName);
+                case "email" -> set(user.getEmail(), required(change.getKey(), asString(value)), user::setEmail);
+                case "phoneNumber" -> set(user.getPhoneNumber(), required(change.getKey(), asString(value)), user::setPhoneNumber);
+                case "dateOfBirth" -> set(user.getDateOfBirth(), asDate(value), user::setDateOfBirth);
+                case "gender" -> set(user.getGender(), asGender(value), user::setGender);
+                case "activeStartDate" -> set(user.getActiveStartDate(), required(change.getKey(), asDate(value)), user::setActiveStartDate);
+                case "activeEndDate" -> set(user.getActiveEndDate(), required(change.getKey(), asDate(value)), user::setActiveEndDate);
+                case "address" -> false;
+                default -> throw new IllegalArgumentException(String.format("Unknown field %s", change.getKey()));
+            };
+        }
+        return changed;
+    }
+
+    public boolean patch(Map<String, Object> changes, Address address) {
+        boolean changed = false;
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            String value = required("address." + change.getKey(), asString(change.getValue()));
+            changed |= switch (change.getKey()) {
+                case "streetAddress" -> set(address.getStreetAddress(), value, address::setStreetAddress);
+                case "city" -> set(address.getCity(), value, address::setCity);
+                case "state" -> set(address.getState(), value, address::setState);
+                case "postalCode" -> set(address.getPostalCode(), value, address::setPostalCode);
+                case "country" -> set(address.getCountry(), value, address::setCountry);
+                default -> throw new IllegalArgumentException(String.format("Unknown field address.%s", change.getKey()));
+            };
+        }
+        return changed;
+    }
+
+    /**
+     * A patch that creates the address has to carry all of it, the columns are not nullable.
+     */
+    public void requireComplete(Address address) {
+        required("address.streetAddress", address.getStreetAddress());
+        required("address.city", address.getCity());
+        required("address.state", address.getState());
+        required("address.postalCode", address.getPostalCode());
+        required("address.country", address.getCountry());
+    }
+
+    private static <T> boolean set(T current, T value, Consumer<T> setter) {
+        if (Objects.equals(current, value)) {
+            return false;
+        }
+        setter.accept(value);
+        return true;
+    }
+
+    private static <T> T required(String field, T value) {
+        if (value == null) {
+            throw new IllegalArgumentException(String.format("%s must not be null", field));
+        }
+        return value;
+    }
+
+    private static String asString(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static LocalDate asDate(Object value) {
+        try {
+            return value == null ? null : LocalDate.parse(value.toString());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(String.format("Invalid date %s", value), e);
+        }
+    }
+
+    private static Gender asGender(Object value) {
+        return value == null ? null : Gender.valueOf(value.toString());
+    }
+}
@@ -0,0 +1,67 @@
+package kct.co.id.skilltest.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.TimeUnit;
+
+public class RequestMetricsInterceptor implements HandlerInterceptor {
+    private final MeterRegistry meterRegistry;
+
+    public RequestMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestTimings.start();
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // streaming bodies are written on another thread, the timings of this one no longer apply
+        RequestTimings.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestTimings timings = RequestTimings.current();
+        RequestTimings.clear();
+        if (timings == null) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Tags tags = Tags.of(
+                "uri", pattern == null ? "UNKNOWN" : pattern.toString(),
+                "method", request.getMethod());
+        record(tags.and("phase", "db"), timings.getDatabaseNanos());
+        record(tags.and("phase", "mapping"), timings.getMappingNanos());
+        if (timings.getSerializationStartNanos() != 0) {
+            record(tags.and("phase", "serialization"), System.nanoTime() - timings.getSerializationStartNanos());
+        }
+        DistributionSummary
+                .builder("users.request.statements")
+                .description("JDBC statements prepared per request")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(timings.getStatements());
+    }
+
+    private void record(Tags tags, long nanos) {
+        Timer
+                .builder("users.request.phase")
+                .description("Time spent per request in database, mapping and serialization")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,53 @@
+package kct.co.id.skilltest.metrics;
+
+import lombok.Getter;
+
+@Getter
+public class RequestTimings {
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private long databaseNanos;
+    private long mappingNanos;
+    private long statements;
+    private long serializationStartNanos;
+
+    public static void start() {
+        CURRENT.set(new RequestTimings());
+    }
+
+    public static RequestTimings current() {
+        return CURRENT.get();
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public static void addDatabase(long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.databaseNanos += nanos;
+        }
+    }
+
+    public static void addMapping(long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.mappingNanos += nanos;
+        }
+    }
+
+    public static void addStatement() {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.statements++;
+        }
+    }
+
+    public static void markSerializationStart() {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null && timings.serializationStartNanos == 0) {
+            timings.serializationStartNanos = System.nanoTime();
+        }
+    }
+}
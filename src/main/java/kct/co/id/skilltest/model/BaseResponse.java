@@ -1,5 +1,6 @@
 package kct.co.id.skilltest.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.Embeddable;
 import lombok.Builder;
 import lombok.Getter;
@@ -21,4 +22,10 @@ public class BaseResponse<T> implements Serializable {
 
     private T data;
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long nextCursor;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextToken;
+
 }
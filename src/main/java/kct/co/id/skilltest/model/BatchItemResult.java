@@ -0,0 +1,25 @@
+package kct.co.id.skilltest.model;
+
+import kct.co.id.skilltest.dto.UserDTO;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.io.Serializable;
+
+@Getter
+@Setter
+@Builder
+@ToString
+public class BatchItemResult implements Serializable {
+
+    private Integer index;
+
+    private Boolean success;
+
+    private String message;
+
+    private UserDTO data;
+
+}
@@ -0,0 +1,40 @@
+package kct.co.id.skilltest.model;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@ToString
+public class ImportJobStatus implements Serializable {
+
+    private String id;
+
+    private String status;
+
+    private String contentType;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    private Long read;
+
+    private Long persisted;
+
+    private Long rejected;
+
+    private Double recordsPerSecond;
+
+    private String message;
+
+    private List<BatchItemResult> rejects;
+
+}
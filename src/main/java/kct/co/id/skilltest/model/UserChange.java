@@ -0,0 +1,29 @@
+package kct.co.id.skilltest.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.enumerate.UserChangeType;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder
+@ToString
+public class UserChange implements Serializable {
+
+    private UserChangeType type;
+
+    private Long id;
+
+    private LocalDateTime changedAt;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private UserDTO data;
+
+}
@@ -0,0 +1,29 @@
+package kct.co.id.skilltest.model;
+
+import kct.co.id.skilltest.enumerate.Gender;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+public class UserFilter implements Serializable {
+    private String email;
+    private String phoneNumber;
+    private String city;
+    private String country;
+    private Gender gender;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate activeFrom;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate activeTo;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate activeOn;
+}
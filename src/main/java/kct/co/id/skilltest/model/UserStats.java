@@ -0,0 +1,37 @@
+package kct.co.id.skilltest.model;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Getter
+@Setter
+@Builder
+@ToString
+public class UserStats implements Serializable {
+
+    private Long total;
+
+    private Long active;
+
+    private Long inactive;
+
+    private Map<String, Long> gender;
+
+    private Map<String, Long> country;
+
+    private Map<String, Long> city;
+
+    private Map<String, Long> ageBand;
+
+    private LocalDate asOf;
+
+    private LocalDateTime rebuiltAt;
+
+}
@@ -0,0 +1,20 @@
+package kct.co.id.skilltest.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.io.Serializable;
+
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+public class UserSuggestion implements Serializable {
+
+    private Long id;
+
+    private String fullName;
+
+}
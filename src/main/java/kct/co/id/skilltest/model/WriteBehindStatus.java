@@ -0,0 +1,39 @@
+package kct.co.id.skilltest.model;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder
+@ToString
+public class WriteBehindStatus implements Serializable {
+
+    private Integer partitions;
+
+    private Long pending;
+
+    private Long queued;
+
+    private Long coalesced;
+
+    private Long rejected;
+
+    private Long flushed;
+
+    private Long superseded;
+
+    private Long failed;
+
+    private Long journalBytes;
+
+    private LocalDateTime lastFlushAt;
+
+    private String lastFailure;
+
+}
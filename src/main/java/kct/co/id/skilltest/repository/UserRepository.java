@@ -1,7 +1,120 @@
 package kct.co.id.skilltest.repository;
 
+import jakarta.persistence.QueryHint;
+import kct.co.id.skilltest.dto.UserDTO;
 import kct.co.id.skilltest.entity.User;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+    String USER_DTO_QUERY = "select new kct.co.id.skilltest.dto.UserDTO(" +
+            "u.id, u.firstName, u.lastName, u.email, u.phoneNumber, u.dateOfBirth, u.gender, " +
+            "u.activeStartDate, u.activeEndDate, u.createdAt, u.updatedAt, u.version, " +
+            "a.streetAddress, a.city, a.state, a.postalCode, a.country) " +
+            "from User u left join u.address a";
+
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query(USER_DTO_QUERY + " where u.id = :id")
+    Optional<UserDTO> findDTOById(@Param("id") Long id);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(USER_DTO_QUERY + " order by u.id")
+    Stream<UserDTO> streamAll();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(USER_DTO_QUERY + " where u.id between :from and :to order by u.id")
+    Stream<UserDTO> streamRange(@Param("from") Long from, @Param("to") Long to);
+
+    @Query(USER_DTO_QUERY + " where u.activeStartDate = :day and u.id > :after order by u.id")
+    List<UserDTO> findActivatingOn(@Param("day") LocalDate day, @Param("after") Long after, Limit limit);
+
+    @Query(USER_DTO_QUERY + " where u.activeEndDate = :lastDay and u.id > :after order by u.id")
+    List<UserDTO> findExpiringAfter(@Param("lastDay") LocalDate lastDay, @Param("after") Long after, Limit limit);
+
+    @Query(USER_DTO_QUERY + " where (u.updatedAt > :since or (u.updatedAt = :since and u.id > :after)) and u.updatedAt < :until " +
+            "order by u.updatedAt, u.id")
+    List<UserDTO> findChangedAfter(@Param("since") LocalDateTime since, @Param("after") Long after,
+                                   @Param("until") LocalDateTime until, Limit limit);
+
+    @Query("select u.version from User u where u.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("select u.id as id, u.version as version from User u where u.id in :ids")
+    List<Versions> findVersions(@Param("ids") Collection<Long> ids);
+
+    @Query("select min(u.id) from User u where u.id > :after")
+    Long findMinIdAfter(@Param("after") Long after);
+
+    @Query("select min(u.id) as minId, max(u.id) as maxId from User u")
+    IdRange findIdRange();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.id as id, u.email as email, u.phoneNumber as phoneNumber from User u")
+    Stream<UniqueKeys> streamUniqueKeys();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.id as id, u.firstName as firstName, u.lastName as lastName from User u")
+    Stream<Names> streamNames();
+
+    @Query("select u.gender as bucket, count(u) as users from User u group by u.gender")
+    List<Bucket> countByGender();
+
+    @Query("select a.country as bucket, count(u) as users from User u left join u.address a group by a.country")
+    List<Bucket> countByCountry();
+
+    @Query("select a.city as bucket, count(u) as users from User u left join u.address a group by a.city")
+    List<Bucket> countByCity();
+
+    @Query("select u.dateOfBirth as bucket, count(u) as users from User u group by u.dateOfBirth")
+    List<Bucket> countByDateOfBirth();
+
+    @Query("select count(u) from User u where u.activeStartDate <= :day and u.activeEndDate >= :day")
+    long countActiveOn(@Param("day") LocalDate day);
+
+    interface Bucket {
+        Object getBucket();
+
+        Long getUsers();
+    }
+
+    interface Versions {
+        Long getId();
+
+        Long getVersion();
+    }
+
+    interface IdRange {
+        Long getMinId();
+
+        Long getMaxId();
+    }
+
+    interface Names {
+        Long getId();
+
+        String getFirstName();
+
+        String getLastName();
+    }
+
+    interface UniqueKeys {
+        Long getId();
+
+        String getEmail();
+
+        String getPhoneNumber();
+    }
 }
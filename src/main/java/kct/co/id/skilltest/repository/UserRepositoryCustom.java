@@ -0,0 +1,10 @@
+package kct.co.id.skilltest.repository;
+
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.model.UserFilter;
+
+import java.util.List;
+
+public interface UserRepositoryCustom {
+    List<UserDTO> search(UserFilter filter, Long after, int limit);
+}
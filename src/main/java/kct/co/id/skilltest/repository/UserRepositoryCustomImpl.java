@@ -0,0 +1,72 @@
+package kct.co.id.skilltest.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.*;
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.entity.Address;
+import kct.co.id.skilltest.entity.User;
+import kct.co.id.skilltest.model.UserFilter;
+import kct.co.id.skilltest.util.UserKeys;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    @Autowired
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserDTO> search(UserFilter filter, Long after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserDTO> query = cb.createQuery(UserDTO.class);
+        Root<User> user = query.from(User.class);
+        Join<User, Address> address = user.join("address", JoinType.LEFT);
+        query.select(cb.construct(UserDTO.class,
+                user.get("id"), user.get("firstName"), user.get("lastName"), user.get("email"), user.get("phoneNumber"),
+                user.get("dateOfBirth"), user.get("gender"), user.get("activeStartDate"), user.get("activeEndDate"),
+                user.get("createdAt"), user.get("updatedAt"), user.get("version"),
+                address.get("streetAddress"), address.get("city"), address.get("state"), address.get("postalCode"), address.get("country")));
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.greaterThan(user.get("id"), after));
+        if (filter.getEmail() != null) {
+            // same normalization as UserUniquenessIndex, served by idx_users_email_key
+            predicates.add(cb.equal(user.get("emailKey"), UserKeys.normalizeEmail(filter.getEmail())));
+        }
+        if (filter.getPhoneNumber() != null) {
+            predicates.add(cb.equal(user.get("phoneNumber"), filter.getPhoneNumber()));
+        }
+        if (filter.getGender() != null) {
+            predicates.add(cb.equal(user.get("gender"), filter.getGender()));
+        }
+        if (filter.getCity() != null) {
+            predicates.add(cb.equal(address.get("city"), filter.getCity()));
+        }
+        if (filter.getCountry() != null) {
+            predicates.add(cb.equal(address.get("country"), filter.getCountry()));
+        }
+        // users whose active window overlaps [activeFrom, activeTo]
+        if (filter.getActiveTo() != null) {
+            predicates.add(cb.lessThanOrEqualTo(user.get("activeStartDate"), filter.getActiveTo()));
+        }
+        if (filter.getActiveFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(user.get("activeEndDate"), filter.getActiveFrom()));
+        }
+        // users whose active window contains activeOn. Neither (date, id) index bounds this from both sides: the
+        // database range-scans one of them over every window that started before, or ends after, the day
+        if (filter.getActiveOn() != null) {
+            predicates.add(cb.lessThanOrEqualTo(user.get("activeStartDate"), filter.getActiveOn()));
+            predicates.add(cb.greaterThanOrEqualTo(user.get("activeEndDate"), filter.getActiveOn()));
+        }
+        query.where(predicates.toArray(new Predicate[0]));
+        query.orderBy(cb.asc(user.get("id")));
+
+        return entityManager
+                .createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
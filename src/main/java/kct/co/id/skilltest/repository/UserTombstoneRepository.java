@@ -0,0 +1,25 @@
+package kct.co.id.skilltest.repository;
+
+import kct.co.id.skilltest.entity.UserTombstone;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface UserTombstoneRepository extends JpaRepository<UserTombstone, Long> {
+    @Query("select t from UserTombstone t " +
+            "where (t.deletedAt > :since or (t.deletedAt = :since and t.id > :after)) and t.deletedAt < :until " +
+            "order by t.deletedAt, t.id")
+    List<UserTombstone> findDeletedAfter(@Param("since") LocalDateTime since, @Param("after") Long after,
+                                         @Param("until") LocalDateTime until, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("delete from UserTombstone t where t.deletedAt < :before")
+    int deleteDeletedBefore(@Param("before") LocalDateTime before);
+}
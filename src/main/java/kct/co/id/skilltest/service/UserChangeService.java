@@ -0,0 +1,13 @@
+package kct.co.id.skilltest.service;
+
+import kct.co.id.skilltest.model.BaseResponse;
+import kct.co.id.skilltest.model.UserChange;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface UserChangeService {
+    BaseResponse<List<UserChange>> getChanges(LocalDateTime since, String token, Integer size) throws Exception;
+
+    void purgeTombstones();
+}
@@ -0,0 +1,10 @@
+package kct.co.id.skilltest.service;
+
+import kct.co.id.skilltest.enumerate.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface UserExportService {
+    void export(OutputStream outputStream, ExportFormat format, boolean ordered, Integer parallelism) throws IOException;
+}
@@ -0,0 +1,7 @@
+package kct.co.id.skilltest.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface UserFeedService {
+    SseEmitter subscribe(String lastEventId) throws Exception;
+}
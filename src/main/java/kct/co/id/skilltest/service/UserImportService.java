@@ -0,0 +1,16 @@
+package kct.co.id.skilltest.service;
+
+import kct.co.id.skilltest.model.BaseResponse;
+import kct.co.id.skilltest.model.ImportJobStatus;
+import org.springframework.http.MediaType;
+
+import java.io.InputStream;
+import java.util.List;
+
+public interface UserImportService {
+    BaseResponse<ImportJobStatus> importUsers(InputStream inputStream, MediaType mediaType) throws Exception;
+
+    BaseResponse<List<ImportJobStatus>> getJobs() throws Exception;
+
+    BaseResponse<ImportJobStatus> getJob(String id) throws Exception;
+}
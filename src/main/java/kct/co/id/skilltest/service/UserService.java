@@ -2,19 +2,38 @@ package kct.co.id.skilltest.service;
 
 import kct.co.id.skilltest.dto.UserDTO;
 import kct.co.id.skilltest.model.BaseResponse;
+import kct.co.id.skilltest.model.BatchItemResult;
+import kct.co.id.skilltest.model.UserFilter;
 import kct.co.id.skilltest.model.UserPayload;
+import kct.co.id.skilltest.model.UserStats;
+import kct.co.id.skilltest.model.UserSuggestion;
+import org.springframework.http.MediaType;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
 
 public interface UserService {
-    BaseResponse<List<UserDTO>> get() throws Exception;
+    BaseResponse<List<UserDTO>> get(UserFilter filter, Long after, Integer size) throws Exception;
 
-    BaseResponse<UserDTO> getById(UUID id) throws Exception;
+    void stream(OutputStream outputStream, MediaType mediaType) throws IOException;
+
+    BaseResponse<UserDTO> getById(Long id) throws Exception;
+
+    BaseResponse<List<UserSuggestion>> suggest(String query, Integer limit) throws Exception;
+
+    BaseResponse<UserStats> getStats() throws Exception;
+
+    BaseResponse<Map<String, Long>> getCacheStats() throws Exception;
 
     BaseResponse<UserDTO> post(UserPayload userPayload) throws Exception;
 
-    BaseResponse<UserDTO> put(Long id, UserPayload userPayload) throws Exception;
+    BaseResponse<List<BatchItemResult>> postBatch(List<UserPayload> userPayloads) throws Exception;
+
+    BaseResponse<UserDTO> put(Long id, UserPayload userPayload, Long expectedVersion) throws Exception;
+
+    BaseResponse<UserDTO> patch(Long id, Map<String, Object> changes, Long expectedVersion) throws Exception;
 
     BaseResponse<Boolean> delete(Long id) throws Exception;
 }
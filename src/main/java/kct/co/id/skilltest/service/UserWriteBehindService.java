@@ -0,0 +1,11 @@
+package kct.co.id.skilltest.service;
+
+import kct.co.id.skilltest.model.BaseResponse;
+import kct.co.id.skilltest.model.UserPayload;
+import kct.co.id.skilltest.model.WriteBehindStatus;
+
+public interface UserWriteBehindService {
+    BaseResponse<Boolean> enqueue(Long id, UserPayload userPayload) throws Exception;
+
+    BaseResponse<WriteBehindStatus> getStatus() throws Exception;
+}
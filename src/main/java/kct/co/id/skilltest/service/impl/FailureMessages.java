@@ -0,0 +1,75 @@
+package kct.co.id.skilltest.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.SQLException;
+import java.time.format.DateTimeParseException;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Turns failures of batch, import and write-behind items into messages that are safe to hand to clients. Driver and
+ * Hibernate messages carry SQL, constraint and table names, so known causes get a fixed message and everything else a
+ * generic one. Callers log the cause itself.
+ */
+final class FailureMessages {
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String NOT_NULL_VIOLATION = "23502";
+    private static final String VALUE_TOO_LONG = "22001";
+
+    private FailureMessages() {
+    }
+
+    /**
+     * For a row that could not be written.
+     */
+    static String write(Throwable e) {
+        if (e instanceof ResponseStatusException status) {
+            return status.getReason();
+        }
+        if (e instanceof DataIntegrityViolationException) {
+            return switch (Objects.toString(sqlState(e), "")) {
+                case UNIQUE_VIOLATION -> "User already exists";
+                case NOT_NULL_VIOLATION -> "A required field is missing";
+                case VALUE_TOO_LONG -> "A value is too long";
+                default -> "User violates a data constraint";
+            };
+        }
+        return "Unexpected error";
+    }
+
+    /**
+     * For an import line that could not be read. The parser's own messages name the column and the value, and the
+     * value is the client's own input.
+     */
+    static String read(Throwable e) {
+        if (e instanceof JsonMappingException mapping && !mapping.getPath().isEmpty()) {
+            return "Invalid value for " + mapping.getPath()
+                    .stream()
+                    .map(reference -> reference.getFieldName() != null ? reference.getFieldName() : String.valueOf(reference.getIndex()))
+                    .collect(Collectors.joining("."));
+        }
+        if (e instanceof JsonProcessingException) {
+            return "Malformed JSON";
+        }
+        if (e instanceof DateTimeParseException) {
+            return "Invalid date, expected yyyy-MM-dd";
+        }
+        if (e instanceof IllegalArgumentException) {
+            return e.getMessage();
+        }
+        return "Unreadable line";
+    }
+
+    private static String sqlState(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && sql.getSQLState() != null) {
+                return sql.getSQLState();
+            }
+        }
+        return null;
+    }
+}
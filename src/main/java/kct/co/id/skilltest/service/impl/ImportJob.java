@@ -0,0 +1,98 @@
+package kct.co.id.skilltest.service.impl;
+
+import kct.co.id.skilltest.model.BatchItemResult;
+import kct.co.id.skilltest.model.ImportJobStatus;
+import lombok.Getter;
+import org.springframework.http.MediaType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class ImportJob {
+    @Getter
+    private final String id = UUID.randomUUID().toString();
+    private final MediaType contentType;
+    private final int maxRejects;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final long startedNanos = System.nanoTime();
+    private final AtomicLong read = new AtomicLong();
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicInteger keptRejects = new AtomicInteger();
+    private final Queue<BatchItemResult> rejects = new ConcurrentLinkedQueue<>();
+    private volatile String status = "RUNNING";
+    private volatile String message;
+    private volatile LocalDateTime finishedAt;
+    private volatile long finishedNanos;
+
+    ImportJob(MediaType contentType, int maxRejects) {
+        this.contentType = contentType;
+        this.maxRejects = maxRejects;
+    }
+
+    void read() {
+        read.incrementAndGet();
+    }
+
+    void persisted() {
+        persisted.incrementAndGet();
+    }
+
+    void reject(long row, String reason) {
+        rejected.incrementAndGet();
+        // only the first rejects are kept so a bad file cannot grow the job without bound
+        if (keptRejects.incrementAndGet() <= maxRejects) {
+            rejects.add(BatchItemResult
+                    .builder()
+                    .index((int) row)
+                    .success(false)
+                    .message(reason)
+                    .build());
+        }
+    }
+
+    boolean isAborted() {
+        return "FAILED".equals(status);
+    }
+
+    void abort(Throwable cause) {
+        // the cause is logged where the job fails, its message may carry SQL or driver details
+        message = "Import failed";
+        finish("FAILED");
+    }
+
+    synchronized void finish(String status) {
+        if (finishedAt == null) {
+            this.status = status;
+            finishedNanos = System.nanoTime();
+            finishedAt = LocalDateTime.now();
+        }
+    }
+
+    boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    ImportJobStatus toStatus() {
+        long elapsed = (finishedAt == null ? System.nanoTime() : finishedNanos) - startedNanos;
+        return ImportJobStatus
+                .builder()
+                .id(id)
+                .status(status)
+                .contentType(contentType.toString())
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .read(read.get())
+                .persisted(persisted.get())
+                .rejected(rejected.get())
+                .recordsPerSecond(elapsed == 0 ? 0 : persisted.get() * 1_000_000_000d / elapsed)
+                .message(message)
+                .rejects(new ArrayList<>(rejects))
+                .build();
+    }
+}
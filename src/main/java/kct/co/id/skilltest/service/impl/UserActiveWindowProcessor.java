@@ -0,0 +1,95 @@
+package kct.co.id.skilltest.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.enumerate.UserChangeType;
+import kct.co.id.skilltest.event.UserActiveWindowEvent;
+import kct.co.id.skilltest.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Once a day, finds the users whose active window opens today or closed yesterday through the
+ * {@code (active_start_date, id)} and {@code (active_end_date, id)} indexes and publishes an
+ * {@link UserActiveWindowEvent} for each. Users are walked by id in chunks, one transaction per chunk, so neither
+ * the table nor the day's users are ever held at once. A process started after the day's run time treats the day as
+ * done, so a restart does not publish its transitions a second time.
+ */
+@Slf4j
+@Component
+public class UserActiveWindowProcessor {
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+    @Value("${user.batch.chunk-size:500}")
+    private int chunkSize;
+    @Value("${user.active-window.cron:5 0 0 * * *}")
+    private String cron;
+
+    private TransactionTemplate readOnlyTransactionTemplate;
+    private LocalDate processedThrough;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransactionTemplate.setReadOnly(true);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime todaysRun = CronExpression.parse(cron).next(now.toLocalDate().atStartOfDay().minusNanos(1));
+        // started after today's run, so the previous process already published today and a restart must not repeat it
+        boolean ranToday = todaysRun != null && todaysRun.toLocalDate().equals(now.toLocalDate()) && todaysRun.isBefore(now);
+        processedThrough = ranToday ? now.toLocalDate() : now.toLocalDate().minusDays(1);
+    }
+
+    @Scheduled(cron = "${user.active-window.cron:5 0 0 * * *}")
+    public synchronized void processDue() {
+        // catches up on days missed while the scheduler was late, but not on days before this process started
+        for (LocalDate day = processedThrough.plusDays(1); !day.isAfter(LocalDate.now()); day = day.plusDays(1)) {
+            process(day);
+            processedThrough = day;
+        }
+    }
+
+    public void process(LocalDate day) {
+        LocalDate lastDay = day.minusDays(1);
+        long activated = process(day, UserChangeType.ACTIVATED, (after, limit) -> userRepository.findActivatingOn(day, after, limit));
+        long expired = process(day, UserChangeType.EXPIRED, (after, limit) -> userRepository.findExpiringAfter(lastDay, after, limit));
+        log.info("Active windows for {}: {} users activated, {} users expired", day, activated, expired);
+    }
+
+    private long process(LocalDate day, UserChangeType type, BiFunction<Long, Limit, List<UserDTO>> chunkLoader) {
+        long processed = 0;
+        long after = 0L;
+        while (true) {
+            long from = after;
+            // events are published inside the chunk transaction and reach listeners once it completes
+            List<UserDTO> chunk = readOnlyTransactionTemplate.execute(status -> {
+                List<UserDTO> userDTOS = chunkLoader.apply(from, Limit.of(chunkSize));
+                for (UserDTO userDTO : userDTOS) {
+                    applicationEventPublisher.publishEvent(new UserActiveWindowEvent(userDTO.getId(), type, day, userDTO));
+                }
+                return userDTOS;
+            });
+            processed += chunk.size();
+            if (chunk.size() < chunkSize) {
+                return processed;
+            }
+            after = chunk.get(chunk.size() - 1).getId();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package kct.co.id.skilltest.service.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.entity.User;
+import kct.co.id.skilltest.event.UserChangedEvent;
+import kct.co.id.skilltest.index.UserUniquenessIndex;
+import kct.co.id.skilltest.mapper.UserMapper;
+import kct.co.id.skilltest.model.BatchItemResult;
+import kct.co.id.skilltest.model.UserPayload;
+import kct.co.id.skilltest.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+public class UserBatchWriter {
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserMapper userMapper;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private Validator validator;
+    @Autowired
+    private UserUniquenessIndex userUniquenessIndex;
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+    @Value("${user.batch.chunk-size:500}")
+    private int chunkSize;
+
+    public List<BatchItemResult> write(List<UserPayload> userPayloads) {
+        BatchItemResult[] results = new BatchItemResult[userPayloads.size()];
+        List<Integer> accepted = new ArrayList<>();
+        for (int index = 0; index < userPayloads.size(); index++) {
+            String error = validate(userPayloads.get(index));
+            if (error != null) {
+                results[index] = failure(index, error);
+            } else {
+                accepted.add(index);
+            }
+        }
+        writeAccepted(userPayloads, accepted, results);
+        return Arrays.asList(results);
+    }
+
+    public List<BatchItemResult> writeValidated(List<UserPayload> userPayloads) {
+        BatchItemResult[] results = new BatchItemResult[userPayloads.size()];
+        List<Integer> accepted = new ArrayList<>(userPayloads.size());
+        for (int index = 0; index < userPayloads.size(); index++) {
+            accepted.add(index);
+        }
+        writeAccepted(userPayloads, accepted, results);
+        return Arrays.asList(results);
+    }
+
+    private void writeAccepted(List<UserPayload> userPayloads, List<Integer> accepted, BatchItemResult[] results) {
+        for (int from = 0; from < accepted.size(); from += chunkSize) {
+            writeChunk(userPayloads, accepted.subList(from, Math.min(from + chunkSize, accepted.size())), results);
+        }
+    }
+
+    private void writeChunk(List<UserPayload> userPayloads, List<Integer> indexes, BatchItemResult[] results) {
+        // duplicates inside the batch conflict with the reservation of the earlier item
+        List<Integer> pending = new ArrayList<>(indexes.size());
+        Map<Integer, UserUniquenessIndex.Reservation> reservations = new HashMap<>();
+        for (Integer index : indexes) {
+            UserPayload userPayload = userPayloads.get(index);
+            UserUniquenessIndex.Reservation reservation = userUniquenessIndex.reserve(null, userPayload.getEmail(), userPayload.getPhoneNumber());
+            if (reservation.getConflict() != null) {
+                results[index] = failure(index, reservation.getConflict());
+            } else {
+                reservations.put(index, reservation);
+                pending.add(index);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<UserDTO> userDTOS = transactionTemplate.execute(status -> persist(userPayloads, pending));
+            for (int i = 0; i < pending.size(); i++) {
+                reservations.get(pending.get(i)).commit(userDTOS.get(i).getId());
+                results[pending.get(i)] = success(pending.get(i), userDTOS.get(i));
+            }
+        } catch (RuntimeException e) {
+            // one bad row rolls back the whole chunk, so retry its items one by one to isolate it
+            for (Integer index : pending) {
+                try {
+                    List<UserDTO> userDTOS = transactionTemplate.execute(status -> persist(userPayloads, List.of(index)));
+                    reservations.get(index).commit(userDTOS.get(0).getId());
+                    results[index] = success(index, userDTOS.get(0));
+                } catch (RuntimeException ex) {
+                    reservations.get(index).release();
+                    String message = FailureMessages.write(ex);
+                    log.warn("Batch item {} failed: {}", index, message, ex);
+                    results[index] = failure(index, message);
+                }
+            }
+        }
+    }
+
+    private List<UserDTO> persist(List<UserPayload> userPayloads, List<Integer> indexes) {
+        List<User> users = new ArrayList<>(indexes.size());
+        for (Integer index : indexes) {
+            users.add(userMapper.toEntity(userPayloads.get(index)));
+        }
+        userRepository.saveAll(users);
+        entityManager.flush();
+        List<UserDTO> userDTOS = new ArrayList<>(users.size());
+        for (User user : users) {
+            UserDTO userDTO = userMapper.toDTO(user);
+            userDTOS.add(userDTO);
+            // delivered to transactional listeners only if this chunk commits
+            applicationEventPublisher.publishEvent(new UserChangedEvent(userDTO.getId(), null, userDTO));
+        }
+        entityManager.clear();
+        return userDTOS;
+    }
+
+    public String validate(UserPayload userPayload) {
+        if (userPayload == null) {
+            return "User must not be null";
+        }
+        Set<ConstraintViolation<UserPayload>> violations = validator.validate(userPayload);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations
+                .stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private static BatchItemResult success(Integer index, UserDTO userDTO) {
+        return BatchItemResult
+                .builder()
+                .index(index)
+                .success(true)
+                .message("Create success")
+                .data(userDTO)
+                .build();
+    }
+
+    private static BatchItemResult failure(Integer index, String message) {
+        return BatchItemResult
+                .builder()
+                .index(index)
+                .success(false)
+                .message(message)
+                .build();
+    }
+}
@@ -0,0 +1,162 @@
+package kct.co.id.skilltest.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import kct.co.id.skilltest.datasource.ReadWriteRoutingDataSource;
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.entity.UserTombstone;
+import kct.co.id.skilltest.enumerate.UserChangeType;
+import kct.co.id.skilltest.model.BaseResponse;
+import kct.co.id.skilltest.model.UserChange;
+import kct.co.id.skilltest.repository.UserRepository;
+import kct.co.id.skilltest.repository.UserTombstoneRepository;
+import kct.co.id.skilltest.service.UserChangeService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Changes are read in (timestamp, id) order from users by {@code updated_at} and from tombstones by
+ * {@code deleted_at}, and the two keysets are merged. The continuation token is the position of the last change
+ * returned, so an empty page hands back the same token to poll with later. It also carries the watermark the
+ * client's copy is complete up to: the {@code since} of the sync, the start of a full sync, or the horizon of the
+ * last page that reached the head. Only that watermark is checked against purged tombstones.
+ * <p>
+ * {@code updated_at} is stamped inside the writing transaction, so a row can commit behind a position already handed
+ * out by up to the length of that transaction. {@code safety-lag} must therefore exceed
+ * {@code user.write.transaction-timeout}, the timeout of the batched writes (batch insert, import, write-behind).
+ * Pages are read from the primary, a replica lagging behind it would add its lag to that window.
+ */
+@Slf4j
+@Service
+public class UserChangeServiceImpl implements UserChangeService {
+    private static final int DEFAULT_PAGE_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 5000;
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserTombstoneRepository userTombstoneRepository;
+    // rows stamped just before now may belong to transactions that have not committed yet
+    @Value("${user.changes.safety-lag:30s}")
+    private Duration safetyLag;
+    @Value("${user.tombstone.retention:7d}")
+    private Duration retention;
+    @Value("${user.write.transaction-timeout:20s}")
+    private Duration transactionTimeout;
+    private volatile LocalDateTime purgedBefore;
+
+    @PostConstruct
+    public void init() {
+        // a previous run may already have purged up to here
+        purgedBefore = LocalDateTime.now().minus(retention);
+        if (safetyLag.compareTo(transactionTimeout) <= 0) {
+            log.warn("user.changes.safety-lag {} does not exceed user.write.transaction-timeout {}, changes committed by longer write transactions can be skipped",
+                    safetyLag, transactionTimeout);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BaseResponse<List<UserChange>> getChanges(LocalDateTime since, String token, Integer size) throws Exception {
+        LocalDateTime until = LocalDateTime.now().minus(safetyLag);
+        Position from;
+        if (token != null) {
+            from = Position.decode(token);
+        } else if (since != null) {
+            from = new Position(since, 0L, since);
+        } else {
+            // a full sync has no copy yet, it only needs the deletes from its start on
+            from = new Position(BEGINNING, 0L, until);
+        }
+        if (from.complete().isBefore(purgedBefore)) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Deletes before this watermark were purged, sync again without since");
+        }
+        int limit = size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        // the token moves past until for good, so a row the replica has not received by then would never be returned
+        List<UserDTO> users = ReadWriteRoutingDataSource.onPrimary(() -> userRepository.findChangedAfter(from.changedAt(), from.id(), until, Limit.of(limit)));
+        List<UserTombstone> tombstones = ReadWriteRoutingDataSource.onPrimary(() -> userTombstoneRepository.findDeletedAfter(from.changedAt(), from.id(), until, Limit.of(limit)));
+
+        List<UserChange> changes = new ArrayList<>(Math.min(limit, users.size() + tombstones.size()));
+        int u = 0;
+        int t = 0;
+        while (changes.size() < limit && (u < users.size() || t < tombstones.size())) {
+            if (t == tombstones.size() || (u < users.size() && compare(users.get(u), tombstones.get(t)) < 0)) {
+                UserDTO userDTO = users.get(u++);
+                changes.add(UserChange
+                        .builder()
+                        .type(Objects.equals(userDTO.getVersion(), 0L) ? UserChangeType.CREATED : UserChangeType.UPDATED)
+                        .id(userDTO.getId())
+                        .changedAt(userDTO.getUpdatedAt())
+                        .data(userDTO)
+                        .build());
+            } else {
+                UserTombstone tombstone = tombstones.get(t++);
+                changes.add(UserChange
+                        .builder()
+                        .type(UserChangeType.DELETED)
+                        .id(tombstone.getId())
+                        .changedAt(tombstone.getDeletedAt())
+                        .build());
+            }
+        }
+        // a short page reached the head, so the client is complete up to this page's horizon
+        LocalDateTime complete = changes.size() < limit ? until : from.complete();
+        Position next = changes.isEmpty()
+                ? new Position(from.changedAt(), from.id(), complete)
+                : new Position(changes.get(changes.size() - 1).getChangedAt(), changes.get(changes.size() - 1).getId(), complete);
+        return BaseResponse
+                .<List<UserChange>>builder()
+                .success(true)
+                .message("List changes")
+                .data(changes)
+                .nextToken(next.encode())
+                .build();
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${user.tombstone.purge-interval:PT1H}", initialDelayString = "${user.tombstone.purge-interval:PT1H}")
+    public void purgeTombstones() {
+        LocalDateTime before = LocalDateTime.now().minus(retention);
+        // raised first, so a client is never told its watermark is fine while its deletes are being purged
+        purgedBefore = before;
+        int purged = userTombstoneRepository.deleteDeletedBefore(before);
+        log.info("Purged {} user tombstones deleted before {}", purged, before);
+    }
+
+    private static int compare(UserDTO userDTO, UserTombstone tombstone) {
+        int byTime = userDTO.getUpdatedAt().compareTo(tombstone.getDeletedAt());
+        return byTime != 0 ? byTime : userDTO.getId().compareTo(tombstone.getId());
+    }
+
+    private record Position(LocalDateTime changedAt, Long id, LocalDateTime complete) {
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString((changedAt + "_" + id + "_" + complete).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Position decode(String token) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("_", 3);
+                LocalDateTime changedAt = LocalDateTime.parse(parts[0]);
+                // tokens issued before the watermark was added only know their position
+                return new Position(changedAt, Long.parseLong(parts[1]), parts.length > 2 ? LocalDateTime.parse(parts[2]) : changedAt);
+            } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid token", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package kct.co.id.skilltest.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import kct.co.id.skilltest.config.JacksonConfig;
+import kct.co.id.skilltest.dto.AddressDTO;
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.enumerate.ExportFormat;
+import kct.co.id.skilltest.repository.UserRepository;
+import kct.co.id.skilltest.service.UserExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Splits the id space into fixed size ranges and scans up to {@code parallelism} of them at once, each in its own
+ * read-only transaction and therefore on its own connection. Every scan hands rows over through a bounded queue, so
+ * memory stays constant per worker whatever the table size. The export ends with a trailer record carrying the row
+ * count, a missing trailer tells the client the export was cut short.
+ */
+@Service
+public class UserExportServiceImpl implements UserExportService {
+    private static final Object END = new Object();
+    private static final long POLL_MILLIS = 100;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private SimpleAsyncTaskExecutorBuilder simpleAsyncTaskExecutorBuilder;
+    @Value("${user.export.max-parallelism:4}")
+    private int maxParallelism;
+    @Value("${user.export.range-size:10000}")
+    private long rangeSize;
+    @Value("${user.export.queue-capacity:1000}")
+    private int queueCapacity;
+
+    private SimpleAsyncTaskExecutor executor;
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        executor = simpleAsyncTaskExecutorBuilder
+                .threadNamePrefix("user-export-")
+                .build();
+        readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void export(OutputStream outputStream, ExportFormat format, boolean ordered, Integer parallelism) throws IOException {
+        long started = System.nanoTime();
+        Ranges ranges = new Ranges(readOnlyTransactionTemplate.execute(status -> userRepository.findIdRange()));
+        int workers = (int) Math.max(1, Math.min(Math.min(parallelism == null ? maxParallelism : parallelism, maxParallelism), ranges.estimate()));
+        RecordWriter writer = format == ExportFormat.CSV ? new CsvRecordWriter(outputStream) : new NdjsonRecordWriter(outputStream, objectMapper);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        long count;
+        try {
+            count = ordered ? exportOrdered(ranges, workers, writer, cancelled) : exportUnordered(ranges, workers, writer, cancelled);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Export interrupted");
+        } finally {
+            // releases scans still blocked on their queue when the client went away
+            cancelled.set(true);
+        }
+        Map<String, Object> trailer = new LinkedHashMap<>();
+        trailer.put("trailer", true);
+        trailer.put("count", count);
+        trailer.put("ranges", ranges.handedOut());
+        trailer.put("parallelism", workers);
+        trailer.put("ordered", ordered);
+        trailer.put("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        writer.trailer(trailer);
+        writer.flush();
+    }
+
+    private long exportOrdered(Ranges ranges, int workers, RecordWriter writer, AtomicBoolean cancelled) throws IOException, InterruptedException {
+        // ranges are written in id order while the next ones are already being scanned into their own queues
+        Deque<BlockingQueue<Object>> inFlight = new ArrayDeque<>(workers);
+        long count = 0;
+        long[] range;
+        while (inFlight.size() < workers && (range = ranges.next()) != null) {
+            inFlight.add(start(range, cancelled));
+        }
+        while (!inFlight.isEmpty()) {
+            count += drain(inFlight.poll(), writer, 1);
+            if ((range = ranges.next()) != null) {
+                inFlight.add(start(range, cancelled));
+            }
+        }
+        return count;
+    }
+
+    private long exportUnordered(Ranges ranges, int workers, RecordWriter writer, AtomicBoolean cancelled) throws IOException, InterruptedException {
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueCapacity * workers);
+        for (int i = 0; i < workers; i++) {
+            executor.execute(() -> {
+                long[] range;
+                while (!cancelled.get() && (range = ranges.next()) != null) {
+                    scan(range, queue, cancelled);
+                }
+                offer(queue, END, cancelled);
+            });
+        }
+        return drain(queue, writer, workers);
+    }
+
+    private BlockingQueue<Object> start(long[] range, AtomicBoolean cancelled) {
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueCapacity);
+        executor.execute(() -> {
+            scan(range, queue, cancelled);
+            offer(queue, END, cancelled);
+        });
+        return queue;
+    }
+
+    private void scan(long[] range, BlockingQueue<Object> queue, AtomicBoolean cancelled) {
+        try {
+            readOnlyTransactionTemplate.executeWithoutResult(status -> {
+                try (Stream<UserDTO> users = userRepository.streamRange(range[0], range[1])) {
+                    Iterator<UserDTO> iterator = users.iterator();
+                    while (iterator.hasNext()) {
+                        if (!offer(queue, iterator.next(), cancelled)) {
+                            return;
+                        }
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            offer(queue, new ScanFailure(range, e), cancelled);
+        }
+    }
+
+    private static long drain(BlockingQueue<Object> queue, RecordWriter writer, int ends) throws IOException, InterruptedException {
+        long count = 0;
+        while (ends > 0) {
+            Object item = queue.take();
+            if (item == END) {
+                ends--;
+            } else if (item instanceof ScanFailure failure) {
+                throw new IllegalStateException(String.format("Export of ids %s to %s failed", failure.range()[0], failure.range()[1]), failure.cause());
+            } else {
+                writer.write((UserDTO) item);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean offer(BlockingQueue<Object> queue, Object item, AtomicBoolean cancelled) {
+        try {
+            while (!cancelled.get()) {
+                if (queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private record ScanFailure(long[] range, Throwable cause) {
+    }
+
+    /**
+     * Hands out id ranges one at a time instead of splitting the whole id space up front. Each range starts at the
+     * first id after the previous one, so a gap in the ids costs one index lookup rather than empty range scans. The
+     * lookup runs under a {@link ReentrantLock}, a monitor held during a query would pin a virtual thread.
+     */
+    private class Ranges {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long maxId;
+        private final long estimate;
+        private Long nextFrom;
+        private int handedOut;
+
+        Ranges(UserRepository.IdRange idRange) {
+            boolean empty = idRange == null || idRange.getMinId() == null;
+            maxId = empty ? 0 : idRange.getMaxId();
+            nextFrom = empty ? null : idRange.getMinId();
+            estimate = empty ? 0 : (maxId - nextFrom) / rangeSize + 1;
+        }
+
+        long estimate() {
+            return estimate;
+        }
+
+        int handedOut() {
+            lock.lock();
+            try {
+                return handedOut;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long[] next() {
+            lock.lock();
+            try {
+                if (nextFrom == null) {
+                    return null;
+                }
+                long from = nextFrom;
+                long to = maxId - from < rangeSize ? maxId : from + rangeSize - 1;
+                // ids past the max taken at the start belong to rows created during the export and are left out, as before
+                Long following = to == maxId ? null : readOnlyTransactionTemplate.execute(status -> userRepository.findMinIdAfter(to));
+                nextFrom = following == null || following > maxId ? null : following;
+                handedOut++;
+                return new long[]{from, to};
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private interface RecordWriter {
+        void write(UserDTO userDTO) throws IOException;
+
+        void trailer(Map<String, Object> trailer) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    private static class NdjsonRecordWriter implements RecordWriter {
+        private final JsonGenerator generator;
+
+        NdjsonRecordWriter(OutputStream outputStream, ObjectMapper objectMapper) throws IOException {
+            generator = objectMapper.createGenerator(outputStream);
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(UserDTO userDTO) throws IOException {
+            generator.writeObject(userDTO);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void trailer(Map<String, Object> trailer) throws IOException {
+            generator.writeObject(trailer);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static class CsvRecordWriter implements RecordWriter {
+        private final Writer writer;
+
+        CsvRecordWriter(OutputStream outputStream) throws IOException {
+            writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 1 << 16);
+            writer.write("id,firstName,lastName,fullName,email,phoneNumber,dateOfBirth,gender,activeStartDate,activeEndDate," +
+                    "createdAt,updatedAt,streetAddress,city,state,postalCode,country\n");
+        }
+
+        @Override
+        public void write(UserDTO userDTO) throws IOException {
+            AddressDTO address = userDTO.getAddress() == null ? new AddressDTO() : userDTO.getAddress();
+            writer.write(String.join(",",
+                    escape(userDTO.getId()),
+                    escape(userDTO.getFirstName()),
+                    escape(userDTO.getLastName()),
+                    escape(userDTO.getFullName()),
+                    escape(userDTO.getEmail()),
+                    escape(userDTO.getPhoneNumber()),
+                    escape(userDTO.getDateOfBirth()),
+                    escape(userDTO.getGender()),
+                    escape(userDTO.getActiveStartDate()),
+                    escape(userDTO.getActiveEndDate()),
+                    escape(userDTO.getCreatedAt() == null ? null : JacksonConfig.DATE_TIME_FORMATTER.format(userDTO.getCreatedAt())),
+                    escape(userDTO.getUpdatedAt() == null ? null : JacksonConfig.DATE_TIME_FORMATTER.format(userDTO.getUpdatedAt())),
+                    escape(address.getStreetAddress()),
+                    escape(address.getCity()),
+                    escape(address.getState()),
+                    escape(address.getPostalCode()),
+                    escape(address.getCountry())));
+            writer.write('\n');
+        }
+
+        @Override
+        public void trailer(Map<String, Object> trailer) throws IOException {
+            StringJoiner joiner = new StringJoiner(" ", "#", "\n");
+            trailer.forEach((key, value) -> joiner.add(key + "=" + value));
+            writer.write(joiner.toString());
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        private static String escape(Object value) {
+            if (value == null) {
+                return "";
+            }
+            String text = value.toString();
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                return text;
+            }
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package kct.co.id.skilltest.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import kct.co.id.skilltest.enumerate.OverflowPolicy;
+import kct.co.id.skilltest.event.UserActiveWindowEvent;
+import kct.co.id.skilltest.event.UserChangedEvent;
+import kct.co.id.skilltest.model.UserChange;
+import kct.co.id.skilltest.service.UserFeedService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.boot.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fans committed user changes and active window transitions out to SSE subscribers. An idle subscriber is only an
+ * emitter and an empty buffer, a task to write to it is queued only while it has something pending. With platform
+ * threads those tasks share {@code sender-threads} threads, with virtual threads each gets its own. Pending events
+ * are keyed by user id, so a burst of updates to one user reaches a slow client as its latest state. The last {@code replay-size} events are
+ * kept in a ring so a reconnecting client resumes from its {@code Last-Event-ID}, a client that is too far behind gets
+ * a {@code RESET} event and should resync through {@code /users/changes}. So does a client whose buffer overflowed
+ * under the {@code DROP} policy, and a client whose id is from another process, since event ids are
+ * {@code <epoch>-<sequence>} with the startup time as epoch.
+ */
+@Slf4j
+@Service
+public class UserFeedServiceImpl implements UserFeedService {
+    private static final String RESET = "RESET";
+    private static final Pattern EVENT_ID = Pattern.compile("(?:(\\d+)-)?(\\d+)");
+    private static final long OTHER_EPOCH = -1;
+    @Autowired
+    private SimpleAsyncTaskExecutorBuilder simpleAsyncTaskExecutorBuilder;
+    @Autowired
+    private ThreadPoolTaskExecutorBuilder threadPoolTaskExecutorBuilder;
+    @Autowired
+    private Environment environment;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Value("${user.feed.replay-size:10000}")
+    private int replaySize;
+    @Value("${user.feed.buffer-size:256}")
+    private int bufferSize;
+    @Value("${user.feed.overflow:DROP}")
+    private OverflowPolicy overflowPolicy;
+    @Value("${user.feed.timeout:30m}")
+    private Duration timeout;
+    @Value("${user.feed.sender-threads:8}")
+    private int senderThreads;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private FeedEvent[] ring;
+    private long epoch;
+    private long sequence;
+    private TaskExecutor executor;
+    private Counter dropped;
+    private Counter coalesced;
+    private Counter disconnected;
+
+    @PostConstruct
+    public void init() {
+        ring = new FeedEvent[replaySize];
+        epoch = System.currentTimeMillis();
+        if (Threading.VIRTUAL.isActive(environment)) {
+            executor = simpleAsyncTaskExecutorBuilder
+                    .threadNamePrefix("user-feed-")
+                    .build();
+        } else {
+            // every subscriber has a heartbeat to send at the same time, a new platform thread each would not be cheap
+            ThreadPoolTaskExecutor pool = threadPoolTaskExecutorBuilder
+                    .corePoolSize(senderThreads)
+                    .maxPoolSize(senderThreads)
+                    .threadNamePrefix("user-feed-")
+                    .build();
+            pool.initialize();
+            executor = pool;
+        }
+        Gauge.builder("users.feed.subscribers", subscribers, Set::size).register(meterRegistry);
+        dropped = Counter.builder("users.feed.events").tag("outcome", "dropped").register(meterRegistry);
+        coalesced = Counter.builder("users.feed.events").tag("outcome", "coalesced").register(meterRegistry);
+        disconnected = Counter.builder("users.feed.disconnected").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        }
+    }
+
+    @Override
+    public SseEmitter subscribe(String lastEventId) throws Exception {
+        Long resumeAfter = resumePoint(lastEventId);
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeout.toMillis()));
+        subscriber.emitter.onCompletion(subscriber::close);
+        subscriber.emitter.onTimeout(subscriber::close);
+        subscriber.emitter.onError(error -> subscriber.close());
+        // replaying and joining under the publish lock means no event is missed or sent twice in between
+        synchronized (this) {
+            if (resumeAfter != null) {
+                replay(subscriber, resumeAfter);
+            }
+            subscribers.add(subscriber);
+        }
+        return subscriber.emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        UserChange change = UserChange
+                .builder()
+                .type(event.getType())
+                .id(event.getId())
+                .changedAt(event.getCurrent() == null ? LocalDateTime.now() : event.getCurrent().getUpdatedAt())
+                .data(event.getCurrent())
+                .build();
+        publish(change);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserActiveWindow(UserActiveWindowEvent event) {
+        publish(UserChange
+                .builder()
+                .type(event.getType())
+                .id(event.getId())
+                .changedAt(event.getDay().atStartOfDay())
+                .data(event.getUser())
+                .build());
+    }
+
+    private void publish(UserChange change) {
+        synchronized (this) {
+            FeedEvent feedEvent = new FeedEvent(++sequence, change);
+            ring[(int) (feedEvent.id() % ring.length)] = feedEvent;
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(feedEvent, true);
+            }
+        }
+    }
+
+    @Scheduled(fixedRateString = "${user.feed.heartbeat:PT15S}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeat();
+        }
+    }
+
+    private Long resumePoint(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return null;
+        }
+        Matcher matcher = EVENT_ID.matcher(lastEventId.trim());
+        if (!matcher.matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid Last-Event-ID");
+        }
+        try {
+            // sequences restart with the process, so an id without this epoch says nothing about the ring
+            if (matcher.group(1) == null || Long.parseLong(matcher.group(1)) != epoch) {
+                return OTHER_EPOCH;
+            }
+            return Long.parseLong(matcher.group(2));
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid Last-Event-ID", e);
+        }
+    }
+
+    private void replay(Subscriber subscriber, long resumeAfter) {
+        // the ring only reaches back replay-size events
+        if (resumeAfter == OTHER_EPOCH || resumeAfter > sequence || resumeAfter < sequence - ring.length) {
+            subscriber.reset();
+            return;
+        }
+        for (long id = resumeAfter + 1; id <= sequence; id++) {
+            subscriber.offer(ring[(int) (id % ring.length)], false);
+        }
+    }
+
+    private record FeedEvent(long id, UserChange change) {
+    }
+
+    private class Subscriber {
+        private final SseEmitter emitter;
+        private final LinkedHashMap<Long, FeedEvent> pending = new LinkedHashMap<>();
+        private boolean reset;
+        private boolean heartbeat;
+        private boolean draining;
+        private boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        synchronized void offer(FeedEvent event, boolean bounded) {
+            if (closed) {
+                return;
+            }
+            // re-inserting moves the user behind older pending users, keeping ids ascending on the wire
+            if (pending.remove(event.change().getId()) != null) {
+                coalesced.increment();
+            } else if (bounded && pending.size() >= bufferSize) {
+                if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                    disconnected.increment();
+                    close();
+                    emitter.complete();
+                    return;
+                }
+                Iterator<FeedEvent> oldest = pending.values().iterator();
+                oldest.next();
+                oldest.remove();
+                dropped.increment();
+                // the client missed a change, so it is told to resync instead of silently diverging
+                reset = true;
+            }
+            pending.put(event.change().getId(), event);
+            schedule();
+        }
+
+        synchronized void reset() {
+            reset = true;
+            schedule();
+        }
+
+        synchronized void heartbeat() {
+            heartbeat = true;
+            schedule();
+        }
+
+        synchronized void close() {
+            closed = true;
+            pending.clear();
+            subscribers.remove(this);
+        }
+
+        private void schedule() {
+            if (!draining && !closed) {
+                draining = true;
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            List<FeedEvent> events;
+            boolean sendReset;
+            boolean sendHeartbeat;
+            synchronized (this) {
+                if (closed || (pending.isEmpty() && !reset && !heartbeat)) {
+                    draining = false;
+                    return;
+                }
+                events = new ArrayList<>(pending.values());
+                pending.clear();
+                sendReset = reset;
+                sendHeartbeat = heartbeat;
+                reset = false;
+                heartbeat = false;
+            }
+            // sending may block on a slow client, so it happens outside the lock
+            try {
+                if (sendReset) {
+                    emitter.send(SseEmitter.event().name(RESET).data("Changes were missed, resync from /users/changes"));
+                }
+                for (FeedEvent event : events) {
+                    emitter.send(SseEmitter
+                            .event()
+                            .id(epoch + "-" + event.id())
+                            .name(event.change().getType().name())
+                            .data(event.change(), MediaType.APPLICATION_JSON));
+                }
+                if (sendHeartbeat) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+            } catch (Exception e) {
+                log.debug("Dropping feed subscriber", e);
+                close();
+                emitter.completeWithError(e);
+                return;
+            }
+            synchronized (this) {
+                // what arrived meanwhile goes to the back of the queue, so a busy subscriber does not hold a sender
+                if (closed || (pending.isEmpty() && !reset && !heartbeat)) {
+                    draining = false;
+                } else {
+                    executor.execute(this::drain);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package kct.co.id.skilltest.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import kct.co.id.skilltest.model.BaseResponse;
+import kct.co.id.skilltest.model.BatchItemResult;
+import kct.co.id.skilltest.model.ImportJobStatus;
+import kct.co.id.skilltest.model.UserPayload;
+import kct.co.id.skilltest.service.UserImportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Imports run as a three stage pipeline: a parser reads lines, a pool of validators checks them and a single writer
+ * persists them in chunks through {@link UserBatchWriter}. The stages are joined by bounded queues so a slow database
+ * pushes back on the parser instead of the file piling up in memory. The request thread only spools the upload to a
+ * temporary file and registers the job, so the client gets the job id as soon as the upload is in and polls
+ * {@code /users/imports/{id}} while the pipeline runs.
+ */
+@Slf4j
+@Service
+public class UserImportServiceImpl implements UserImportService {
+    private static final Row END = new Row(-1, null);
+    private static final long POLL_MILLIS = 100;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private UserBatchWriter userBatchWriter;
+    @Autowired
+    private SimpleAsyncTaskExecutorBuilder simpleAsyncTaskExecutorBuilder;
+    @Value("${user.batch.chunk-size:500}")
+    private int chunkSize;
+    @Value("${user.import.validators:4}")
+    private int validators;
+    @Value("${user.import.queue-capacity:2000}")
+    private int queueCapacity;
+    @Value("${user.import.max-rejects:1000}")
+    private int maxRejects;
+    @Value("${user.import.max-concurrent-jobs:2}")
+    private int maxConcurrentJobs;
+    @Value("${user.import.retained-jobs:100}")
+    private int retainedJobs;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private final Queue<String> jobOrder = new ConcurrentLinkedQueue<>();
+    private SimpleAsyncTaskExecutor executor;
+    private Semaphore running;
+
+    @PostConstruct
+    public void init() {
+        // follows spring.threads.virtual.enabled, so the stages run on virtual threads when those are enabled
+        executor = simpleAsyncTaskExecutorBuilder
+                .threadNamePrefix("user-import-")
+                .build();
+        running = new Semaphore(maxConcurrentJobs);
+    }
+
+    @Override
+    public BaseResponse<ImportJobStatus> importUsers(InputStream inputStream, MediaType mediaType) throws Exception {
+        UserRecordParser parser;
+        try {
+            parser = UserRecordParser.of(mediaType, objectMapper);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, e.getMessage());
+        }
+        if (!running.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, String.format("Only %s imports may run at a time", maxConcurrentJobs));
+        }
+        ImportJob job = new ImportJob(mediaType, maxRejects);
+        Path upload = null;
+        try {
+            register(job);
+            upload = Files.createTempFile("user-import-", ".upload");
+            Files.copy(inputStream, upload, StandardCopyOption.REPLACE_EXISTING);
+            Path spooled = upload;
+            executor.execute(() -> run(job, spooled, parser));
+        } catch (Exception e) {
+            log.warn("Import {} failed while receiving the upload", job.getId(), e);
+            job.abort(e);
+            delete(upload);
+            running.release();
+        }
+        return BaseResponse
+                .<ImportJobStatus>builder()
+                .message(job.isAborted() ? "Import failed" : "Import started")
+                .success(!job.isAborted())
+                .data(job.toStatus())
+                .build();
+    }
+
+    @Override
+    public BaseResponse<List<ImportJobStatus>> getJobs() throws Exception {
+        List<ImportJobStatus> statuses = new ArrayList<>();
+        for (String id : jobOrder) {
+            ImportJob job = jobs.get(id);
+            if (job != null) {
+                statuses.add(job.toStatus());
+            }
+        }
+        return BaseResponse
+                .<List<ImportJobStatus>>builder()
+                .message("Get success")
+                .success(true)
+                .data(statuses)
+                .build();
+    }
+
+    @Override
+    public BaseResponse<ImportJobStatus> getJob(String id) throws Exception {
+        ImportJob job = jobs.get(id);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Import not found");
+        }
+        return BaseResponse
+                .<ImportJobStatus>builder()
+                .message("Get success")
+                .success(true)
+                .data(job.toStatus())
+                .build();
+    }
+
+    private void register(ImportJob job) {
+        jobs.put(job.getId(), job);
+        jobOrder.add(job.getId());
+        // forget the oldest finished jobs, running ones stay visible however many there are
+        Iterator<String> ids = jobOrder.iterator();
+        while (jobs.size() > retainedJobs && ids.hasNext()) {
+            String id = ids.next();
+            ImportJob oldest = jobs.get(id);
+            if (oldest == null || oldest.isFinished()) {
+                jobs.remove(id);
+                ids.remove();
+            }
+        }
+    }
+
+    private void run(ImportJob job, Path upload, UserRecordParser parser) {
+        try (InputStream inputStream = Files.newInputStream(upload)) {
+            run(job, inputStream, parser);
+        } catch (Throwable e) {
+            log.warn("Import {} failed", job.getId(), e);
+            job.abort(e);
+        } finally {
+            delete(upload);
+            running.release();
+        }
+    }
+
+    private static void delete(Path upload) {
+        if (upload == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(upload);
+        } catch (IOException e) {
+            log.warn("Could not delete import upload {}", upload, e);
+        }
+    }
+
+    private void run(ImportJob job, InputStream inputStream, UserRecordParser parser) throws Exception {
+        BlockingQueue<Row> parsed = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Row> validated = new ArrayBlockingQueue<>(queueCapacity);
+        CountDownLatch validatorsDone = new CountDownLatch(validators);
+        List<Future<?>> stages = new ArrayList<>(validators + 1);
+        for (int i = 0; i < validators; i++) {
+            stages.add(executor.submit(() -> validate(job, parsed, validated, validatorsDone)));
+        }
+        stages.add(executor.submit(() -> persist(job, validated, validatorsDone)));
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            parse(job, reader, parser, parsed);
+        } catch (Exception e) {
+            log.warn("Import {} failed while reading the upload", job.getId(), e);
+            job.abort(e);
+        } finally {
+            for (int i = 0; i < validators; i++) {
+                if (job.isAborted()) {
+                    parsed.clear();
+                }
+                offer(job, parsed, END, true);
+            }
+        }
+        for (Future<?> stage : stages) {
+            stage.get();
+        }
+        job.finish("COMPLETED");
+    }
+
+    private void parse(ImportJob job, BufferedReader reader, UserRecordParser parser, BlockingQueue<Row> parsed) throws Exception {
+        String line;
+        long row = 0;
+        while ((line = reader.readLine()) != null && !job.isAborted()) {
+            row++;
+            if (line.isBlank()) {
+                continue;
+            }
+            UserPayload userPayload;
+            try {
+                userPayload = parser.parse(line);
+            } catch (Exception e) {
+                job.read();
+                log.debug("Import {} rejected line {}", job.getId(), row, e);
+                job.reject(row, FailureMessages.read(e));
+                continue;
+            }
+            if (userPayload != null) {
+                job.read();
+                offer(job, parsed, new Row(row, userPayload), false);
+            }
+        }
+    }
+
+    private void validate(ImportJob job, BlockingQueue<Row> parsed, BlockingQueue<Row> validated, CountDownLatch validatorsDone) {
+        try {
+            while (true) {
+                Row row = parsed.take();
+                if (row == END) {
+                    return;
+                }
+                String error = userBatchWriter.validate(row.payload());
+                if (error != null) {
+                    job.reject(row.line(), error);
+                } else if (!offer(job, validated, row, false)) {
+                    return;
+                }
+            }
+        } catch (Throwable e) {
+            log.warn("Import {} failed while validating", job.getId(), e);
+            job.abort(e);
+        } finally {
+            validatorsDone.countDown();
+        }
+    }
+
+    private void persist(ImportJob job, BlockingQueue<Row> validated, CountDownLatch validatorsDone) {
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        try {
+            while (!job.isAborted()) {
+                boolean done = validatorsDone.getCount() == 0;
+                Row row = validated.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (row != null) {
+                    chunk.add(row);
+                    validated.drainTo(chunk, chunkSize - chunk.size());
+                }
+                // a short chunk is written when the upstream stages go quiet, so progress never stalls on a slow upload
+                if (chunk.size() >= chunkSize || (row == null && !chunk.isEmpty())) {
+                    write(job, chunk);
+                    chunk.clear();
+                }
+                if (done && row == null && validated.isEmpty()) {
+                    return;
+                }
+            }
+        } catch (Throwable e) {
+            log.warn("Import {} failed while persisting", job.getId(), e);
+            job.abort(e);
+        }
+    }
+
+    private void write(ImportJob job, List<Row> chunk) {
+        List<UserPayload> userPayloads = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            userPayloads.add(row.payload());
+        }
+        List<BatchItemResult> results = userBatchWriter.writeValidated(userPayloads);
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i).getSuccess()) {
+                job.persisted();
+            } else {
+                job.reject(chunk.get(i).line(), results.get(i).getMessage());
+            }
+        }
+    }
+
+    /**
+     * Blocks while the queue is full, giving up once the job has failed so no stage waits on a dead consumer.
+     */
+    private static boolean offer(ImportJob job, BlockingQueue<Row> queue, Row row, boolean evenIfAborted) {
+        try {
+            while (evenIfAborted || !job.isAborted()) {
+                if (queue.offer(row, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private record Row(long line, UserPayload payload) {
+    }
+}
@@ -0,0 +1,128 @@
+package kct.co.id.skilltest.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import kct.co.id.skilltest.dto.AddressDTO;
+import kct.co.id.skilltest.enumerate.Gender;
+import kct.co.id.skilltest.model.UserPayload;
+import org.springframework.http.MediaType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses one line of an import file into a {@link UserPayload}. CSV files start with a header row naming the
+ * {@link UserPayload} fields, address fields are unprefixed ({@code city}, {@code country}, ...). Quoted CSV values
+ * may contain commas and doubled quotes but not line breaks.
+ */
+class UserRecordParser {
+    static final MediaType TEXT_CSV = new MediaType("text", "csv");
+
+    private final ObjectReader objectReader;
+    private String[] columns;
+
+    private UserRecordParser(ObjectReader objectReader) {
+        this.objectReader = objectReader;
+    }
+
+    static UserRecordParser of(MediaType mediaType, ObjectMapper objectMapper) {
+        if (mediaType != null && TEXT_CSV.equalsTypeAndSubtype(mediaType)) {
+            return new UserRecordParser(null);
+        }
+        if (mediaType != null && MediaType.APPLICATION_NDJSON.equalsTypeAndSubtype(mediaType)) {
+            return new UserRecordParser(objectMapper.readerFor(UserPayload.class));
+        }
+        throw new IllegalArgumentException(String.format("Unsupported import type %s, use %s or %s", mediaType, TEXT_CSV, MediaType.APPLICATION_NDJSON));
+    }
+
+    /**
+     * Returns {@code null} for the CSV header row.
+     */
+    UserPayload parse(String line) throws Exception {
+        if (objectReader != null) {
+            return objectReader.readValue(line);
+        }
+        List<String> values = split(line);
+        if (columns == null) {
+            columns = values.stream().map(String::trim).toArray(String[]::new);
+            return null;
+        }
+        if (values.size() != columns.length) {
+            throw new IllegalArgumentException(String.format("Expected %d columns but found %d", columns.length, values.size()));
+        }
+        UserPayload userPayload = new UserPayload();
+        AddressDTO address = new AddressDTO();
+        boolean hasAddress = false;
+        for (int i = 0; i < columns.length; i++) {
+            String value = values.get(i).isEmpty() ? null : values.get(i);
+            switch (columns[i]) {
+                case "firstName" -> userPayload.setFirstName(value);
+                case "lastName" -> userPayload.setLastName(value);
+                case "email" -> userPayload.setEmail(value);
+                case "phoneNumber" -> userPayload.setPhoneNumber(value);
+                case "dateOfBirth" -> userPayload.setDateOfBirth(value == null ? null : LocalDate.parse(value));
+                case "gender" -> userPayload.setGender(value == null ? null : gender(value));
+                case "activeStartDate" -> userPayload.setActiveStartDate(value == null ? null : LocalDate.parse(value));
+                case "activeEndDate" -> userPayload.setActiveEndDate(value == null ? null : LocalDate.parse(value));
+                case "streetAddress" -> address.setStreetAddress(value);
+                case "city" -> address.setCity(value);
+                case "state" -> address.setState(value);
+                case "postalCode" -> address.setPostalCode(value);
+                case "country" -> address.setCountry(value);
+                default -> throw new IllegalArgumentException(String.format("Unknown column %s", columns[i]));
+            }
+            hasAddress |= value != null && isAddressColumn(columns[i]);
+        }
+        if (hasAddress) {
+            userPayload.setAddress(address);
+        }
+        return userPayload;
+    }
+
+    private static Gender gender(String value) {
+        try {
+            return Gender.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Unknown gender %s", value), e);
+        }
+    }
+
+    private static boolean isAddressColumn(String column) {
+        return switch (column) {
+            case "streetAddress", "city", "state", "postalCode", "country" -> true;
+            default -> false;
+        };
+    }
+
+    private static List<String> split(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted value");
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
@@ -1,45 +1,135 @@
 package kct.co.id.skilltest.service.impl;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import kct.co.id.skilltest.cache.UserCache;
+import kct.co.id.skilltest.config.JacksonConfig;
+import kct.co.id.skilltest.datasource.ReadWriteRoutingDataSource;
 import kct.co.id.skilltest.dto.UserDTO;
 import kct.co.id.skilltest.entity.Address;
 import kct.co.id.skilltest.entity.User;
+import kct.co.id.skilltest.entity.UserTombstone;
+import kct.co.id.skilltest.event.UserChangedEvent;
+import kct.co.id.skilltest.index.UserNameIndex;
+import kct.co.id.skilltest.index.UserStatsIndex;
+import kct.co.id.skilltest.index.UserUniquenessIndex;
+import kct.co.id.skilltest.mapper.UserMapper;
 import kct.co.id.skilltest.model.BaseResponse;
+import kct.co.id.skilltest.model.BatchItemResult;
+import kct.co.id.skilltest.model.UserFilter;
 import kct.co.id.skilltest.model.UserPayload;
+import kct.co.id.skilltest.model.UserStats;
+import kct.co.id.skilltest.model.UserSuggestion;
 import kct.co.id.skilltest.repository.UserRepository;
+import kct.co.id.skilltest.repository.UserTombstoneRepository;
 import kct.co.id.skilltest.service.UserService;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 public class UserServiceImpl implements UserService {
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int DEFAULT_SUGGEST_SIZE = 10;
+    private static final int MAX_SUGGEST_SIZE = 50;
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter;
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborHttpMessageConverter;
+    @Autowired
+    private UserMapper userMapper;
+    @Autowired
+    private UserCache userCache;
+    @Autowired
+    private UserBatchWriter userBatchWriter;
+    @Autowired
+    private UserUniquenessIndex userUniquenessIndex;
+    @Autowired
+    private UserNameIndex userNameIndex;
+    @Autowired
+    private UserStatsIndex userStatsIndex;
+    @Autowired
+    private UserTombstoneRepository userTombstoneRepository;
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Value("${user.batch.max-size:50000}")
+    private int batchMaxSize;
+    @Value("${user.write.max-retries:3}")
+    private int maxRetries;
 
     @Override
-    public BaseResponse<List<UserDTO>> get() throws Exception {
-        List<User> users = userRepository.findAll();
-        List<UserDTO> userDTOS = OBJECT_MAPPER.convertValue(users, new TypeReference<>() {
-        });
+    @Transactional(readOnly = true)
+    public BaseResponse<List<UserDTO>> get(UserFilter filter, Long after, Integer size) throws Exception {
+        int limit = size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        List<UserDTO> userDTOS = userRepository.search(filter, after == null ? 0L : after, limit);
         return BaseResponse
                 .<List<UserDTO>>builder()
                 .success(true)
                 .message("List users")
                 .data(userDTOS)
+                .nextCursor(userDTOS.size() == limit ? userDTOS.get(limit - 1).getId() : null)
                 .build();
     }
 
     @Override
-    public BaseResponse<UserDTO> getById(UUID id) throws Exception {
-        User user = userRepository.getReferenceById(Long.valueOf(id.toString()));
-        UserDTO userDTO = OBJECT_MAPPER.convertValue(user, UserDTO.class);
+    @Transactional(readOnly = true)
+    public void stream(OutputStream outputStream, MediaType mediaType) throws IOException {
+        ObjectMapper mapper = objectMapper;
+        if (JacksonConfig.APPLICATION_SMILE.isCompatibleWith(mediaType)) {
+            mapper = smileHttpMessageConverter.getObjectMapper();
+        } else if (MediaType.APPLICATION_CBOR.isCompatibleWith(mediaType)) {
+            mapper = cborHttpMessageConverter.getObjectMapper();
+        }
+        try (Stream<UserDTO> users = userRepository.streamAll();
+             JsonGenerator generator = mapper.createGenerator(outputStream)) {
+            generator.writeStartObject();
+            generator.writeBooleanField("success", true);
+            generator.writeStringField("message", "List users");
+            generator.writeArrayFieldStart("data");
+            Iterator<UserDTO> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                generator.writeObject(iterator.next());
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    @Override
+    public BaseResponse<UserDTO> getById(Long id) throws Exception {
+        // a miss fills UserCache and the query cache for every client, so it reads the primary and not a lagging replica
+        UserDTO userDTO = userCache.get(id, key -> ReadWriteRoutingDataSource
+                .onPrimary(() -> userRepository.findDTOById(key))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found")));
         return BaseResponse
                 .<UserDTO>builder()
                 .success(true)
@@ -49,14 +139,55 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    public BaseResponse<List<UserSuggestion>> suggest(String query, Integer limit) throws Exception {
+        List<UserSuggestion> suggestions = userNameIndex.suggest(query, limit == null ? DEFAULT_SUGGEST_SIZE : Math.min(Math.max(limit, 1), MAX_SUGGEST_SIZE));
+        return BaseResponse
+                .<List<UserSuggestion>>builder()
+                .success(true)
+                .message("Suggest users")
+                .data(suggestions)
+                .build();
+    }
+
+    @Override
+    public BaseResponse<UserStats> getStats() throws Exception {
+        return BaseResponse
+                .<UserStats>builder()
+                .success(true)
+                .message("User stats")
+                .data(userStatsIndex.snapshot())
+                .build();
+    }
+
+    @Override
+    public BaseResponse<Map<String, Long>> getCacheStats() throws Exception {
+        return BaseResponse
+                .<Map<String, Long>>builder()
+                .success(true)
+                .message("Cache stats")
+                .data(userCache.stats())
+                .build();
+    }
+
+    @Override
+    @Transactional
     public BaseResponse<UserDTO> post(UserPayload userPayload) throws Exception {
-        User user = new User();
-        Address address = new Address();
-        BeanUtils.copyProperties(userPayload, user);
-        BeanUtils.copyProperties(userPayload.getAddress(), address);
-        user.setAddress(address);
-        user = userRepository.save(user);
-        UserDTO userDTO = OBJECT_MAPPER.convertValue(user, UserDTO.class);
+        UserUniquenessIndex.Reservation reservation = reserve(null, userPayload);
+        // registered before anything else can fail, so a rollback always frees the keys
+        afterCompletion(committed -> {
+            if (!committed) {
+                reservation.release();
+            }
+        });
+        User user = userMapper.toEntity(userPayload);
+        afterCompletion(committed -> {
+            if (committed) {
+                reservation.commit(user.getId());
+            }
+        });
+        userRepository.save(user);
+        UserDTO userDTO = userMapper.toDTO(user);
+        applicationEventPublisher.publishEvent(new UserChangedEvent(user.getId(), null, userDTO));
         return BaseResponse
                 .<UserDTO>builder()
                 .message("Create success")
@@ -66,31 +197,190 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public BaseResponse<UserDTO> put(Long id, UserPayload userPayload) throws Exception {
-        User user = userRepository.getReferenceById(id);
-        BeanUtils.copyProperties(userPayload, user);
+    public BaseResponse<List<BatchItemResult>> postBatch(List<UserPayload> userPayloads) throws Exception {
+        if (userPayloads == null || userPayloads.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Batch must not be empty");
+        }
+        if (userPayloads.size() > batchMaxSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("Batch must not exceed %s users", batchMaxSize));
+        }
+        List<BatchItemResult> results = userBatchWriter.write(userPayloads);
+        long created = results.stream().filter(BatchItemResult::getSuccess).count();
+        return BaseResponse
+                .<List<BatchItemResult>>builder()
+                .message(String.format("Created %s of %s users", created, results.size()))
+                .success(true)
+                .data(results)
+                .build();
+    }
+
+    @Override
+    public BaseResponse<UserDTO> put(Long id, UserPayload userPayload, Long expectedVersion) throws Exception {
+        UserDTO userDTO = writeWithRetry(expectedVersion, () -> replace(id, userPayload, expectedVersion));
+        return BaseResponse
+                .<UserDTO>builder()
+                .message("Create success")
+                .success(true)
+                .data(userDTO)
+                .build();
+    }
+
+    private UserDTO replace(Long id, UserPayload userPayload, Long expectedVersion) {
+        User user = find(id, expectedVersion);
+        UserDTO previous = userMapper.toDTO(user);
+        String previousEmail = user.getEmail();
+        String previousPhoneNumber = user.getPhoneNumber();
+        UserUniquenessIndex.Reservation reservation = reserve(id, userPayload);
+        afterCompletion(committed -> {
+            if (committed) {
+                reservation.commit(id, previousEmail, previousPhoneNumber);
+            } else {
+                reservation.release();
+            }
+            // evicted only once the new row is visible, so a concurrent read cannot cache the old one
+            userCache.evict(id);
+        });
+        userMapper.copy(userPayload, user);
         Address address = user.getAddress();
-        BeanUtils.copyProperties(userPayload.getAddress(), address);
-        address.setUpdatedAt(LocalDateTime.now());
-        user.setAddress(address);
+        if (address != null) {
+            address.setUpdatedAt(LocalDateTime.now());
+        }
         user.setUpdatedAt(LocalDateTime.now());
-        user = userRepository.save(user);
-        UserDTO userDTO = OBJECT_MAPPER.convertValue(user, UserDTO.class);
+        user = userRepository.saveAndFlush(user);
+        UserDTO userDTO = userMapper.toDTO(user);
+        applicationEventPublisher.publishEvent(new UserChangedEvent(id, previous, userDTO));
+        return userDTO;
+    }
+
+    @Override
+    public BaseResponse<UserDTO> patch(Long id, Map<String, Object> changes, Long expectedVersion) throws Exception {
+        UserDTO userDTO = writeWithRetry(expectedVersion, () -> merge(id, changes, expectedVersion));
         return BaseResponse
                 .<UserDTO>builder()
-                .message("Create success")
+                .message("Update success")
                 .success(true)
                 .data(userDTO)
                 .build();
     }
 
+    @SuppressWarnings("unchecked")
+    private UserDTO merge(Long id, Map<String, Object> changes, Long expectedVersion) {
+        User user = find(id, expectedVersion);
+        UserDTO previous = userMapper.toDTO(user);
+        String previousEmail = user.getEmail();
+        String previousPhoneNumber = user.getPhoneNumber();
+        UserUniquenessIndex.Reservation reservation = reserve(id,
+                changes.containsKey("email") ? Objects.toString(changes.get("email"), null) : previousEmail,
+                changes.containsKey("phoneNumber") ? Objects.toString(changes.get("phoneNumber"), null) : previousPhoneNumber);
+        afterCompletion(committed -> {
+            if (committed) {
+                reservation.commit(id, previousEmail, previousPhoneNumber);
+            } else {
+                reservation.release();
+            }
+            userCache.evict(id);
+        });
+        try {
+            boolean changed = userMapper.patch(changes, user);
+            if (changes.get("address") instanceof Map<?, ?> addressChanges) {
+                boolean created = user.getAddress() == null;
+                Address address = created ? new Address() : user.getAddress();
+                if (userMapper.patch((Map<String, Object>) addressChanges, address)) {
+                    if (created) {
+                        userMapper.requireComplete(address);
+                    }
+                    address.setUpdatedAt(LocalDateTime.now());
+                    user.setAddress(address);
+                    changed = true;
+                }
+            } else if (changes.containsKey("address")) {
+                throw new IllegalArgumentException("address must be an object");
+            }
+            // untouched columns and an untouched address stay out of the UPDATE thanks to @DynamicUpdate
+            if (changed) {
+                user.setUpdatedAt(LocalDateTime.now());
+                user = userRepository.saveAndFlush(user);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        UserDTO userDTO = userMapper.toDTO(user);
+        if (!userDTO.equals(previous)) {
+            applicationEventPublisher.publishEvent(new UserChangedEvent(id, previous, userDTO));
+        }
+        return userDTO;
+    }
+
     @Override
+    @Transactional
     public BaseResponse<Boolean> delete(Long id) throws Exception {
-        userRepository.deleteById(id);
+        userRepository.findById(id).ifPresent(user -> {
+            UserDTO previous = userMapper.toDTO(user);
+            userRepository.delete(user);
+            userTombstoneRepository.save(new UserTombstone(id, LocalDateTime.now()));
+            applicationEventPublisher.publishEvent(new UserChangedEvent(id, previous, null));
+            afterCompletion(committed -> {
+                if (committed) {
+                    userUniquenessIndex.remove(id, user.getEmail(), user.getPhoneNumber());
+                }
+                userCache.evict(id);
+            });
+        });
         return BaseResponse
                 .<Boolean>builder()
                 .message("Delete success!")
                 .success(true)
                 .build();
     }
+
+    private User find(Long id, Long expectedVersion) {
+        User user = userRepository
+                .findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        if (expectedVersion != null && !expectedVersion.equals(user.getVersion())) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "User has been modified");
+        }
+        return user;
+    }
+
+    /**
+     * Runs the write in its own transaction. The version check happens on flush, so a writer that lost the race
+     * without an If-Match is replayed on a fresh read up to {@code max-retries} times, while a conditional writer
+     * gets a 412 and has to re-read the user itself.
+     */
+    private UserDTO writeWithRetry(Long expectedVersion, Supplier<UserDTO> write) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> write.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (expectedVersion != null) {
+                    throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "User has been modified", e);
+                }
+                if (attempt >= maxRetries) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "User is being modified concurrently, try again", e);
+                }
+            }
+        }
+    }
+
+    private UserUniquenessIndex.Reservation reserve(Long id, UserPayload userPayload) {
+        return reserve(id, userPayload.getEmail(), userPayload.getPhoneNumber());
+    }
+
+    private UserUniquenessIndex.Reservation reserve(Long id, String email, String phoneNumber) {
+        UserUniquenessIndex.Reservation reservation = userUniquenessIndex.reserve(id, email, phoneNumber);
+        if (reservation.getConflict() != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, reservation.getConflict());
+        }
+        return reservation;
+    }
+
+    private static void afterCompletion(Consumer<Boolean> callback) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
 }
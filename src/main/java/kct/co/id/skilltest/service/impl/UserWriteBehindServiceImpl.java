@@ -0,0 +1,452 @@
+package kct.co.id.skilltest.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import kct.co.id.skilltest.model.BaseResponse;
+import kct.co.id.skilltest.model.UserPayload;
+import kct.co.id.skilltest.model.WriteBehindStatus;
+import kct.co.id.skilltest.repository.UserRepository;
+import kct.co.id.skilltest.service.UserService;
+import kct.co.id.skilltest.service.UserWriteBehindService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queues full user replacements and applies them in the background. Updates are partitioned by user id and keyed by
+ * it inside a partition, so a burst of PUTs for one user collapses into the last one. Each partition flushes once it
+ * holds {@code batch-size} users or every {@code flush-interval}, one transaction per batch, and falls back to one
+ * transaction per user when a batch fails. Updates are journaled before they are accepted and replayed after a
+ * restart.
+ * <p>
+ * Every update carries the user version it was queued against and is applied as a conditional write, so a
+ * synchronous write that lands after the 202, or a replay of an update that was already applied, wins over it.
+ */
+@Slf4j
+@Service
+public class UserWriteBehindServiceImpl implements UserWriteBehindService, SmartInitializingSingleton {
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(1);
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private SimpleAsyncTaskExecutorBuilder simpleAsyncTaskExecutorBuilder;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Value("${user.write-behind.partitions:4}")
+    private int partitionCount;
+    @Value("${user.write-behind.capacity:10000}")
+    private int capacity;
+    @Value("${user.write-behind.batch-size:500}")
+    private int batchSize;
+    @Value("${user.write-behind.flush-interval:200ms}")
+    private Duration flushInterval;
+    @Value("${user.write-behind.max-attempts:5}")
+    private int maxAttempts;
+    @Value("${user.write-behind.journal-dir:journal/write-behind}")
+    private String journalDir;
+    @Value("${user.write-behind.fsync:true}")
+    private boolean fsync;
+    @Value("${user.write-behind.compact-threshold:16MB}")
+    private DataSize compactThreshold;
+
+    private volatile boolean running = true;
+    private volatile LocalDateTime lastFlushAt;
+    private volatile String lastFailure;
+    private Partition[] partitions;
+    private SimpleAsyncTaskExecutor executor;
+    private Counter queued;
+    private Counter coalesced;
+    private Counter rejected;
+    private Counter flushed;
+    private Counter superseded;
+    private Counter failed;
+    private Timer flushTimer;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Path directory = Files.createDirectories(Path.of(journalDir));
+        partitions = new Partition[partitionCount];
+        long recovered = 0;
+        for (int index = 0; index < partitionCount; index++) {
+            partitions[index] = new Partition(new WriteBehindJournal(directory.resolve("partition-" + index + ".ndjson"), objectMapper, fsync));
+            recovered += partitions[index].recover();
+        }
+        if (recovered > 0) {
+            log.info("Recovered {} queued user updates from the write-behind journal", recovered);
+        }
+        executor = simpleAsyncTaskExecutorBuilder
+                .threadNamePrefix("user-write-behind-")
+                .build();
+        Gauge.builder("users.write_behind.pending", this, UserWriteBehindServiceImpl::pending).register(meterRegistry);
+        Gauge.builder("users.write_behind.journal", this, UserWriteBehindServiceImpl::journalBytes).baseUnit("bytes").register(meterRegistry);
+        queued = Counter.builder("users.write_behind.updates").tag("outcome", "queued").register(meterRegistry);
+        coalesced = Counter.builder("users.write_behind.updates").tag("outcome", "coalesced").register(meterRegistry);
+        rejected = Counter.builder("users.write_behind.updates").tag("outcome", "rejected").register(meterRegistry);
+        flushed = Counter.builder("users.write_behind.updates").tag("outcome", "flushed").register(meterRegistry);
+        superseded = Counter.builder("users.write_behind.updates").tag("outcome", "superseded").register(meterRegistry);
+        failed = Counter.builder("users.write_behind.updates").tag("outcome", "failed").register(meterRegistry);
+        flushTimer = Timer.builder("users.write_behind.flush").register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        // flushing goes through the user service, so it only starts once every bean is ready
+        for (Partition partition : partitions) {
+            executor.execute(partition::run);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        for (Partition partition : partitions) {
+            partition.stop();
+        }
+    }
+
+    @Override
+    public BaseResponse<Boolean> enqueue(Long id, UserPayload userPayload) throws Exception {
+        if (!running) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Write-behind queue is shutting down");
+        }
+        partitions[Math.floorMod(Long.hashCode(id), partitions.length)].enqueue(id, userPayload);
+        return BaseResponse
+                .<Boolean>builder()
+                .message("Update queued")
+                .success(true)
+                .build();
+    }
+
+    @Override
+    public BaseResponse<WriteBehindStatus> getStatus() throws Exception {
+        WriteBehindStatus status = WriteBehindStatus
+                .builder()
+                .partitions(partitions.length)
+                .pending((long) pending())
+                .queued((long) queued.count())
+                .coalesced((long) coalesced.count())
+                .rejected((long) rejected.count())
+                .flushed((long) flushed.count())
+                .superseded((long) superseded.count())
+                .failed((long) failed.count())
+                .journalBytes((long) journalBytes())
+                .lastFlushAt(lastFlushAt)
+                .lastFailure(lastFailure)
+                .build();
+        return BaseResponse
+                .<WriteBehindStatus>builder()
+                .message("Write-behind status")
+                .success(true)
+                .data(status)
+                .build();
+    }
+
+    private double pending() {
+        long pending = 0;
+        for (Partition partition : partitions) {
+            pending += partition.pendingCount();
+        }
+        return pending;
+    }
+
+    private double journalBytes() {
+        long bytes = 0;
+        for (Partition partition : partitions) {
+            bytes += partition.journalBytes();
+        }
+        return bytes;
+    }
+
+    private Long currentVersion(Long id) {
+        // read through the write template, so it comes from the primary and not from a lagging replica
+        return transactionTemplate
+                .execute(status -> userRepository.findVersionById(id))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+    }
+
+    private Long write(WriteBehindJournal.Entry entry) {
+        try {
+            return userService.put(entry.id(), entry.payload(), entry.version()).getData().getVersion();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        Duration backoff = flushInterval.multipliedBy(1L << Math.min(attempts, 16));
+        return backoff.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff;
+    }
+
+    private static boolean isPermanent(RuntimeException e) {
+        if (e instanceof ResponseStatusException status) {
+            return status.getStatusCode().isSameCodeAs(HttpStatus.BAD_REQUEST) || status.getStatusCode().isSameCodeAs(HttpStatus.NOT_FOUND);
+        }
+        // unique, not null and length violations fail the same way on every attempt
+        return e instanceof DataIntegrityViolationException;
+    }
+
+    private static boolean isSuperseded(RuntimeException e) {
+        return e instanceof ResponseStatusException status && status.getStatusCode().isSameCodeAs(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    private class Partition {
+        private final WriteBehindJournal journal;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition ready = lock.newCondition();
+        private final CountDownLatch stopped = new CountDownLatch(1);
+        private final Map<Long, Long> retryAt = new HashMap<>();
+        private LinkedHashMap<Long, WriteBehindJournal.Entry> pending = new LinkedHashMap<>();
+        private long sequence;
+        private volatile boolean alive = true;
+
+        Partition(WriteBehindJournal journal) {
+            this.journal = journal;
+        }
+
+        int recover() throws IOException {
+            for (WriteBehindJournal.Entry entry : journal.recover()) {
+                pending.put(entry.id(), entry);
+                sequence = Math.max(sequence, entry.sequence());
+            }
+            journal.rewrite(pending.values());
+            return pending.size();
+        }
+
+        void enqueue(Long id, UserPayload userPayload) throws IOException {
+            Long version = pendingVersion(id);
+            if (version == null) {
+                version = currentVersion(id);
+            }
+            lock.lock();
+            try {
+                if (!alive) {
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Write-behind queue is not available");
+                }
+                WriteBehindJournal.Entry previous = pending.get(id);
+                if (previous == null && pending.size() >= capacity) {
+                    rejected.increment();
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Write-behind queue is full, try again later");
+                }
+                // an update coalesced into a queued one is based on the same version as that one
+                WriteBehindJournal.Entry entry = WriteBehindJournal.Entry.update(++sequence, id, userPayload, previous == null ? version : previous.version());
+                journal.append(entry);
+                pending.put(id, entry);
+                retryAt.remove(id);
+                (previous == null ? queued : coalesced).increment();
+                if (pending.size() >= batchSize) {
+                    ready.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void run() {
+            try {
+                while (running) {
+                    List<WriteBehindJournal.Entry> batch = new ArrayList<>();
+                    long through;
+                    lock.lock();
+                    try {
+                        if (pending.size() < batchSize) {
+                            ready.awaitNanos(flushInterval.toNanos());
+                        }
+                        // new updates go to a fresh map, so writers never wait for the database
+                        through = sequence;
+                        long now = System.nanoTime();
+                        LinkedHashMap<Long, WriteBehindJournal.Entry> waiting = new LinkedHashMap<>();
+                        for (WriteBehindJournal.Entry entry : pending.values()) {
+                            Long due = retryAt.get(entry.id());
+                            if (due != null && due - now > 0) {
+                                waiting.put(entry.id(), entry);
+                                // the ack must not cover an update that is still waiting for its retry
+                                through = Math.min(through, entry.sequence() - 1);
+                            } else {
+                                batch.add(entry);
+                                retryAt.remove(entry.id());
+                            }
+                        }
+                        pending = waiting;
+                    } finally {
+                        lock.unlock();
+                    }
+                    if (!batch.isEmpty()) {
+                        try {
+                            flush(batch, through);
+                        } catch (RuntimeException e) {
+                            log.error("Write-behind flush failed, its updates stay in the journal until the next start", e);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                log.error("Write-behind partition stopped, queued updates stay in the journal", e);
+                throw e;
+            } finally {
+                // nothing would flush new updates any more, so enqueue answers 503 instead of 202
+                alive = false;
+                stopped.countDown();
+            }
+        }
+
+        void stop() throws InterruptedException {
+            lock.lock();
+            try {
+                ready.signal();
+            } finally {
+                lock.unlock();
+            }
+            // whatever is not flushed by then is replayed from the journal on the next start
+            stopped.await(flushInterval.toMillis() + 5000, TimeUnit.MILLISECONDS);
+            lock.lock();
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.warn("Closing write-behind journal failed", e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int pendingCount() {
+            lock.lock();
+            try {
+                return pending.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long journalBytes() {
+            lock.lock();
+            try {
+                return journal.size();
+            } catch (IOException e) {
+                return 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Long pendingVersion(Long id) {
+            lock.lock();
+            try {
+                WriteBehindJournal.Entry entry = pending.get(id);
+                return entry == null ? null : entry.version();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void flush(List<WriteBehindJournal.Entry> batch, long through) {
+            long started = System.nanoTime();
+            Map<WriteBehindJournal.Entry, Long> applied = new HashMap<>();
+            List<WriteBehindJournal.Entry> retry = new ArrayList<>();
+            for (int from = 0; from < batch.size(); from += batchSize) {
+                List<WriteBehindJournal.Entry> chunk = batch.subList(from, Math.min(from + batchSize, batch.size()));
+                Map<WriteBehindJournal.Entry, Long> chunkApplied = new HashMap<>();
+                try {
+                    transactionTemplate.executeWithoutResult(status -> chunk.forEach(entry -> chunkApplied.put(entry, write(entry))));
+                    applied.putAll(chunkApplied);
+                    flushed.increment(chunk.size());
+                } catch (RuntimeException e) {
+                    // one bad update rolls the chunk back, so it is replayed one user per transaction
+                    for (WriteBehindJournal.Entry entry : chunk) {
+                        flushOne(entry, applied, retry);
+                    }
+                }
+            }
+            flushTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            lastFlushAt = LocalDateTime.now();
+            lock.lock();
+            try {
+                for (Map.Entry<WriteBehindJournal.Entry, Long> write : applied.entrySet()) {
+                    // an update queued while this one was flushing read the version this flush replaced
+                    WriteBehindJournal.Entry next = pending.get(write.getKey().id());
+                    if (next != null && next.version() != null && next.version().equals(write.getKey().version())) {
+                        WriteBehindJournal.Entry rebased = next.rebased(++sequence, write.getValue());
+                        journal.append(rebased);
+                        pending.put(rebased.id(), rebased);
+                    }
+                }
+                for (WriteBehindJournal.Entry entry : retry) {
+                    // a newer update queued during the flush supersedes the one that failed
+                    if (!pending.containsKey(entry.id())) {
+                        WriteBehindJournal.Entry requeued = entry.retried(++sequence);
+                        journal.append(requeued);
+                        pending.put(entry.id(), requeued);
+                        retryAt.put(entry.id(), System.nanoTime() + backoff(requeued.attemptCount()).toNanos());
+                    }
+                }
+                journal.append(WriteBehindJournal.Entry.ack(through));
+                if (pending.isEmpty()) {
+                    journal.truncate();
+                } else if (journal.size() > compactThreshold.toBytes()) {
+                    journal.rewrite(pending.values());
+                }
+            } catch (IOException e) {
+                log.error("Write-behind journal update failed, flushed updates may be replayed after a restart", e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void flushOne(WriteBehindJournal.Entry entry, Map<WriteBehindJournal.Entry, Long> applied, List<WriteBehindJournal.Entry> retry) {
+            try {
+                applied.put(entry, write(entry));
+                flushed.increment();
+            } catch (RuntimeException e) {
+                if (isSuperseded(e)) {
+                    // the user was written after this update was queued, and the later write wins
+                    superseded.increment();
+                    log.debug("Queued update of user {} superseded by a later write", entry.id());
+                } else if (isPermanent(e) || entry.attemptCount() + 1 >= maxAttempts) {
+                    failed.increment();
+                    lastFailure = String.format("User %s: %s", entry.id(), FailureMessages.write(e));
+                    log.warn("Dropping queued update of user {} after {} attempts", entry.id(), entry.attemptCount() + 1, e);
+                } else {
+                    log.info("Queued update of user {} failed, retrying: {}", entry.id(), e.getMessage());
+                    retry.add(entry);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package kct.co.id.skilltest.service.impl;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kct.co.id.skilltest.model.UserPayload;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Append-only NDJSON log of one write-behind partition. An update is appended before the client gets its 202, and an
+ * ack after each flush covers every update up to its sequence. On startup the updates past the last ack are replayed.
+ * A lock file next to the journal is held while it is open, so two processes or contexts never share a journal.
+ */
+@Slf4j
+class WriteBehindJournal implements Closeable {
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private final boolean fsync;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private FileChannel channel;
+
+    WriteBehindJournal(Path path, ObjectMapper objectMapper, boolean fsync) throws IOException {
+        this.path = path;
+        this.objectMapper = objectMapper;
+        this.fsync = fsync;
+        // a separate lock file, because rewrite replaces the journal file itself
+        this.lockChannel = FileChannel.open(path.resolveSibling(path.getFileName() + ".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock acquired;
+        try {
+            acquired = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null;
+        }
+        if (acquired == null) {
+            lockChannel.close();
+            throw new IllegalStateException(String.format("Write-behind journal %s is already in use", path));
+        }
+        this.lock = acquired;
+        this.channel = open(path);
+    }
+
+    List<Entry> recover() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        long acked = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Entry entry;
+                try {
+                    entry = objectMapper.readValue(line, Entry.class);
+                } catch (JsonProcessingException e) {
+                    // only the last record can be torn, by a crash in the middle of an append
+                    log.warn("Ignoring unreadable write-behind journal record in {}", path);
+                    break;
+                }
+                if (entry.ack() != null) {
+                    acked = Math.max(acked, entry.ack());
+                } else {
+                    entries.add(entry);
+                }
+            }
+        }
+        long lastAck = acked;
+        entries.removeIf(entry -> entry.sequence() <= lastAck);
+        return entries;
+    }
+
+    void append(Entry entry) throws IOException {
+        write(channel, objectMapper.writeValueAsBytes(entry));
+        if (fsync) {
+            channel.force(false);
+        }
+    }
+
+    long size() throws IOException {
+        return channel.size();
+    }
+
+    void truncate() throws IOException {
+        channel.truncate(0);
+    }
+
+    /**
+     * Replaces the journal with just the given updates. They are written to a temporary file first, so a crash leaves
+     * either the old journal or the new one.
+     */
+    void rewrite(Collection<Entry> entries) throws IOException {
+        Path rewritten = path.resolveSibling(path.getFileName() + ".tmp");
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (Entry entry : entries) {
+            buffer.write(objectMapper.writeValueAsBytes(entry));
+            buffer.write('\n');
+        }
+        try (FileChannel temporary = FileChannel.open(rewritten, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            while (bytes.hasRemaining()) {
+                temporary.write(bytes);
+            }
+            temporary.force(true);
+        }
+        channel.close();
+        Files.move(rewritten, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = open(path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            lock.release();
+            lockChannel.close();
+        }
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static void write(FileChannel channel, byte[] record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(record.length + 1);
+        buffer.put(record).put((byte) '\n').flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * A queued update, or an ack when only {@code ack} is set. {@code version} is the user version the update was
+     * queued against, {@code null} in journals written before it was recorded.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Entry(Long sequence, Long id, UserPayload payload, Long version, Integer attempts, Long ack) {
+
+        static Entry update(long sequence, Long id, UserPayload payload, Long version) {
+            return new Entry(sequence, id, payload, version, null, null);
+        }
+
+        static Entry ack(long sequence) {
+            return new Entry(null, null, null, null, null, sequence);
+        }
+
+        int attemptCount() {
+            return attempts == null ? 0 : attempts;
+        }
+
+        Entry retried(long sequence) {
+            return new Entry(sequence, id, payload, version, attemptCount() + 1, null);
+        }
+
+        Entry rebased(long sequence, Long version) {
+            return new Entry(sequence, id, payload, version, attempts, null);
+        }
+    }
+}
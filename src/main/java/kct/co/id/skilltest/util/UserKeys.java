@@ -0,0 +1,15 @@
+package kct.co.id.skilltest.util;
+
+import java.util.Locale;
+
+public final class UserKeys {
+    private UserKeys() {
+    }
+
+    /**
+     * Email the way uniqueness and search compare it: trimmed and lower-cased.
+     */
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,19 @@
+package kct.co.id.skilltest.util;
+
+public final class UserNames {
+    private UserNames() {
+    }
+
+    /**
+     * First and last name joined by a space, or whichever of the two is not blank.
+     */
+    public static String fullName(String firstName, String lastName) {
+        if (lastName == null || lastName.isBlank()) {
+            return firstName;
+        }
+        if (firstName == null || firstName.isBlank()) {
+            return lastName;
+        }
+        return firstName + " " + lastName;
+    }
+}
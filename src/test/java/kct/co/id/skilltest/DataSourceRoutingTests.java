@@ -0,0 +1,139 @@
+package kct.co.id.skilltest;
+
+import com.zaxxer.hikari.HikariDataSource;
+import kct.co.id.skilltest.datasource.ReadWriteRoutingDataSource;
+import kct.co.id.skilltest.datasource.ReadYourWritesInterceptor;
+import kct.co.id.skilltest.repository.UserRepository;
+import kct.co.id.skilltest.service.UserChangeService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+@SpringBootTest
+@ActiveProfiles("replica")
+public class DataSourceRoutingTests {
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserChangeService userChangeService;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private HikariDataSource primaryDataSource;
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private HikariDataSource replicaDataSource;
+
+    private static int activeConnections(HikariDataSource dataSource) {
+        // the pool only starts on its first connection
+        return dataSource.getHikariPoolMXBean() == null ? 0 : dataSource.getHikariPoolMXBean().getActiveConnections();
+    }
+
+    @Test
+    public void readOnlyTransactionUsesReplica() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> {
+            userRepository.count();
+            Assertions.assertAll("Read only",
+                    () -> Assertions.assertEquals(1, activeConnections(replicaDataSource), "Read must hold a replica connection"),
+                    () -> Assertions.assertEquals(0, activeConnections(primaryDataSource), "Read must not hold a primary connection")
+            );
+        });
+    }
+
+    @Test
+    public void readAfterOwnWriteUsesPrimary() {
+        ReadYourWritesInterceptor interceptor = new ReadYourWritesInterceptor(Duration.ofSeconds(5));
+        MockHttpServletRequest write = new MockHttpServletRequest("PUT", "/users/1");
+        write.addHeader(ReadYourWritesInterceptor.CLIENT_ID_HEADER, "writer");
+        interceptor.preHandle(write, new MockHttpServletResponse(), null);
+        interceptor.afterCompletion(write, new MockHttpServletResponse(), null, null);
+
+        MockHttpServletRequest ownRead = new MockHttpServletRequest("GET", "/users/1");
+        ownRead.addHeader(ReadYourWritesInterceptor.CLIENT_ID_HEADER, "writer");
+        MockHttpServletRequest otherRead = new MockHttpServletRequest("GET", "/users/1");
+        otherRead.addHeader(ReadYourWritesInterceptor.CLIENT_ID_HEADER, "reader");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        interceptor.preHandle(ownRead, new MockHttpServletResponse(), null);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                userRepository.count();
+                Assertions.assertAll("Read after own write",
+                        () -> Assertions.assertEquals(1, activeConnections(primaryDataSource), "Read in the window after a write must hold a primary connection"),
+                        () -> Assertions.assertEquals(0, activeConnections(replicaDataSource), "Read in the window after a write must not hold a replica connection")
+                );
+            });
+        } finally {
+            interceptor.afterCompletion(ownRead, new MockHttpServletResponse(), null, null);
+        }
+        interceptor.preHandle(otherRead, new MockHttpServletResponse(), null);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                userRepository.count();
+                Assertions.assertEquals(1, activeConnections(replicaDataSource), "Read of another client must hold a replica connection");
+            });
+        } finally {
+            interceptor.afterCompletion(otherRead, new MockHttpServletResponse(), null, null);
+        }
+    }
+
+    @Test
+    public void cacheFillingReadUsesPrimary() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        ReadWriteRoutingDataSource.onPrimary(() -> transactionTemplate.execute(status -> {
+            userRepository.count();
+            Assertions.assertAll("Cache filling read",
+                    () -> Assertions.assertEquals(1, activeConnections(primaryDataSource), "Read filling a shared cache must hold a primary connection"),
+                    () -> Assertions.assertEquals(0, activeConnections(replicaDataSource), "Read filling a shared cache must not hold a replica connection")
+            );
+            return null;
+        }));
+        transactionTemplate.executeWithoutResult(status -> {
+            userRepository.count();
+            Assertions.assertEquals(1, activeConnections(replicaDataSource), "Later reads must go back to the replica");
+        });
+    }
+
+    @Test
+    public void changesReadUsesPrimary() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                userChangeService.getChanges(null, null, 1);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            Assertions.assertAll("Changes read",
+                    () -> Assertions.assertEquals(1, activeConnections(primaryDataSource), "Read handing out a change token must hold a primary connection"),
+                    () -> Assertions.assertEquals(0, activeConnections(replicaDataSource), "Read handing out a change token must not hold a replica connection")
+            );
+        });
+    }
+
+    @Test
+    public void writeTransactionUsesPrimary() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            userRepository.count();
+            Assertions.assertAll("Read write",
+                    () -> Assertions.assertEquals(1, activeConnections(primaryDataSource), "Write must hold a primary connection"),
+                    () -> Assertions.assertEquals(0, activeConnections(replicaDataSource), "Write must not hold a replica connection")
+            );
+        });
+    }
+}
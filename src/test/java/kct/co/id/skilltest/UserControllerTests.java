@@ -10,30 +10,40 @@ import kct.co.id.skilltest.entity.User;
 import kct.co.id.skilltest.enumerate.Gender;
 import kct.co.id.skilltest.model.UserPayload;
 import kct.co.id.skilltest.repository.UserRepository;
+import kct.co.id.skilltest.repository.UserTombstoneRepository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+// a flush interval well above the gap between two requests, so back to back async updates coalesce
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {"user.changes.safety-lag=0s", "user.write-behind.flush-interval=1s"})
 public class UserControllerTests {
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
     @LocalServerPort
     private int port;
     @Autowired
     private TestRestTemplate restTemplate;
+    // the application's mapper, which owns the date formats of the payloads
+    @Autowired
+    private ObjectMapper objectMapper;
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private UserTombstoneRepository userTombstoneRepository;
 
     private static void assertionsValidation(String heading, ResponseEntity<String> response, Map<String, Object> abstractResponse) {
         Assertions.assertAll(heading,
@@ -59,6 +69,111 @@ public class UserControllerTests {
         Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
     }
 
+    @Test
+    public void getPage() throws Exception {
+        User user = createInvalidUser();
+
+        String BASE_URL = String.format("http://localhost:%s/users?size=1", port);
+        ResponseEntity<String> response = restTemplate
+                .getForEntity(
+                        BASE_URL,
+                        String.class
+                );
+        Map<String, Object> abstractResponse = objectMapper.readValue(response.getBody(), new TypeReference<>() {
+        });
+        Assertions.assertAll("Get Page",
+                () -> Assertions.assertEquals(HttpStatus.OK, response.getStatusCode(), "HTTP Status code must be 200 ok"),
+                () -> Assertions.assertEquals(user.getId(), ((Number) abstractResponse.get("nextCursor")).longValue(), "Next cursor must be last id of the page")
+        );
+    }
+
+    @Test
+    public void search() throws Exception {
+        createInvalidUser();
+
+        String BASE_URL = String.format("http://localhost:%s/users?email=%s&city=%s", port, "johndoe@kct.co.id", "NY");
+        ResponseEntity<String> response = restTemplate
+                .getForEntity(
+                        BASE_URL,
+                        String.class
+                );
+        List<UserDTO> users = objectMapper.convertValue(getData(response.getBody()), new TypeReference<>() {
+        });
+
+        String MIXED_CASE_URL = String.format("http://localhost:%s/users?email=%s", port, " JohnDoe@KCT.co.id");
+        List<UserDTO> mixedCase = objectMapper.convertValue(getData(restTemplate.getForEntity(MIXED_CASE_URL, String.class).getBody()), new TypeReference<>() {
+        });
+
+        String MISSING_URL = String.format("http://localhost:%s/users?country=%s", port, "ID");
+        List<UserDTO> missing = objectMapper.convertValue(getData(restTemplate.getForEntity(MISSING_URL, String.class).getBody()), new TypeReference<>() {
+        });
+        Assertions.assertAll("Search",
+                () -> Assertions.assertEquals(1, users.size(), "Search must match email and city"),
+                () -> Assertions.assertEquals(1, mixedCase.size(), "Search must match email the way uniqueness does, ignoring case and padding"),
+                () -> Assertions.assertTrue(missing.isEmpty(), "Search must not match other country")
+        );
+    }
+
+    @Test
+    public void searchActiveOn() throws Exception {
+        createInvalidUser();
+        UserPayload payload = createUserPayload();
+        payload.setEmail("active@kct.co.id");
+        payload.setPhoneNumber("14046");
+        createUser(payload);
+
+        String BASE_URL = String.format("http://localhost:%s/users?activeOn=%s", port, LocalDate.now());
+        ResponseEntity<String> response = restTemplate
+                .getForEntity(
+                        BASE_URL,
+                        String.class
+                );
+        List<UserDTO> users = objectMapper.convertValue(getData(response.getBody()), new TypeReference<>() {
+        });
+        Assertions.assertAll("Search Active On",
+                () -> Assertions.assertEquals(1, users.size(), "Search must only match users active on the day"),
+                () -> Assertions.assertEquals("active@kct.co.id", users.get(0).getEmail(), "Search must match the active user")
+        );
+    }
+
+    @Test
+    public void stream() throws Exception {
+        createInvalidUser();
+
+        String BASE_URL = String.format("http://localhost:%s/users/stream", port);
+        ResponseEntity<String> response = restTemplate
+                .getForEntity(
+                        BASE_URL,
+                        String.class
+                );
+        List<UserDTO> users = objectMapper.convertValue(getData(response.getBody()), new TypeReference<>() {
+        });
+        Assertions.assertAll("Stream",
+                () -> Assertions.assertEquals(HttpStatus.OK, response.getStatusCode(), "HTTP Status code must be 200 ok"),
+                () -> Assertions.assertEquals(1, users.size(), "Stream must contains all users")
+        );
+    }
+
+    @Test
+    public void export() throws Exception {
+        createInvalidUser();
+
+        String BASE_URL = String.format("http://localhost:%s/users/export?ordered=false", port);
+        ResponseEntity<String> response = restTemplate
+                .getForEntity(
+                        BASE_URL,
+                        String.class
+                );
+        String[] lines = response.getBody().split("\n");
+        Map<String, Object> trailer = objectMapper.readValue(lines[lines.length - 1], new TypeReference<>() {
+        });
+        Assertions.assertAll("Export",
+                () -> Assertions.assertEquals(HttpStatus.OK, response.getStatusCode(), "HTTP Status code must be 200 ok"),
+                () -> Assertions.assertEquals(2, lines.length, "Export must contains all users and the trailer"),
+                () -> Assertions.assertEquals(1, ((Number) trailer.get("count")).intValue(), "Trailer must count the exported users")
+        );
+    }
+
     @Test
     public void checkActiveStartDate() throws Exception {
         createInvalidUser();
@@ -95,6 +210,43 @@ public class UserControllerTests {
         Assertions.assertFalse(isFullNameNull, "Full Name must be combine first name and last name");
     }
 
+    @Test
+    public void suggest() throws Exception {
+        clearData();
+
+        UserPayload payload = createUserPayload();
+        payload.setFirstName("Zo\u00eb");
+        payload.setLastName("Suggestion");
+        UserDTO created = objectMapper.convertValue(getData(createUser(payload).getBody()), UserDTO.class);
+
+        String BASE_URL = String.format("http://localhost:%s/users/suggest?q={q}", port);
+        List<UserDTO> byFirstName = objectMapper.convertValue(getData(restTemplate.getForEntity(BASE_URL, String.class, "zoe sug").getBody()), new TypeReference<>() {
+        });
+        List<UserDTO> byLastName = objectMapper.convertValue(getData(restTemplate.getForEntity(BASE_URL, String.class, "SUGG").getBody()), new TypeReference<>() {
+        });
+        Assertions.assertAll("Suggest",
+                () -> Assertions.assertEquals("Zo\u00eb Suggestion", created.getFullName(), "Full Name must be combine first name and last name"),
+                () -> Assertions.assertTrue(byFirstName.stream().anyMatch(user -> created.getId().equals(user.getId())), "Full name prefix must match"),
+                () -> Assertions.assertTrue(byLastName.stream().anyMatch(user -> created.getId().equals(user.getId())), "Last name prefix must match")
+        );
+    }
+
+    @Test
+    public void stats() throws Exception {
+        clearData();
+
+        String BASE_URL = String.format("http://localhost:%s/users/stats", port);
+        Map<String, Object> before = objectMapper.convertValue(getData(restTemplate.getForEntity(BASE_URL, String.class).getBody()), new TypeReference<>() {
+        });
+        createUser(createUserPayload());
+        Map<String, Object> after = objectMapper.convertValue(getData(restTemplate.getForEntity(BASE_URL, String.class).getBody()), new TypeReference<>() {
+        });
+        Assertions.assertAll("Stats",
+                () -> Assertions.assertEquals(((Number) before.get("total")).longValue() + 1, ((Number) after.get("total")).longValue(), "Create must be counted"),
+                () -> Assertions.assertEquals(((Number) before.get("active")).longValue() + 1, ((Number) after.get("active")).longValue(), "Active user must be counted")
+        );
+    }
+
     private List<UserDTO> getUsers() throws Exception {
         String BASE_URL = String.format("http://localhost:%s/users", port);
 
@@ -104,7 +256,7 @@ public class UserControllerTests {
                         String.class
                 );
 
-        return OBJECT_MAPPER.convertValue(getData(response.getBody()), new TypeReference<>() {
+        return objectMapper.convertValue(getData(response.getBody()), new TypeReference<>() {
         });
     }
 
@@ -117,6 +269,101 @@ public class UserControllerTests {
         Assertions.assertEquals(response.getStatusCode(), HttpStatus.OK);
     }
 
+    @Test
+    public void createIdempotent() throws Exception {
+        clearData();
+
+        String BASE_URL = String.format("http://localhost:%s/users", port);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotency-Key", "create-idempotent");
+
+        ResponseEntity<String> first = restTemplate.exchange(BASE_URL, HttpMethod.POST, new HttpEntity<>(createUserPayload(), headers), String.class);
+        ResponseEntity<String> replay = restTemplate.exchange(BASE_URL, HttpMethod.POST, new HttpEntity<>(createUserPayload(), headers), String.class);
+        UserPayload other = createUserPayload();
+        other.setEmail("other@kct.co.id");
+        ResponseEntity<String> reused = restTemplate.exchange(BASE_URL, HttpMethod.POST, new HttpEntity<>(other, headers), String.class);
+
+        UserDTO created = objectMapper.convertValue(getData(first.getBody()), UserDTO.class);
+        UserDTO replayed = objectMapper.convertValue(getData(replay.getBody()), UserDTO.class);
+        Assertions.assertAll("Create Idempotent",
+                () -> Assertions.assertEquals(HttpStatus.OK, replay.getStatusCode(), "HTTP Status code must be 200 for a replay"),
+                () -> Assertions.assertEquals(created.getId(), replayed.getId(), "Replay must return the user created first"),
+                () -> Assertions.assertEquals(1, userRepository.count(), "Replay must not create another user"),
+                () -> Assertions.assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, reused.getStatusCode(), "HTTP Status code must be 422 for a reused key")
+        );
+    }
+
+    @Test
+    public void createBatch() throws Exception {
+        clearData();
+
+        UserPayload duplicate = createUserPayload();
+        duplicate.setPhoneNumber("14022");
+        duplicate.setEmail("JOHNDOE@kct.co.id");
+
+        String BASE_URL = String.format("http://localhost:%s/users/batch", port);
+        ResponseEntity<String> response = restTemplate
+                .exchange(
+                        BASE_URL,
+                        HttpMethod.POST,
+                        new HttpEntity<>(List.of(createUserPayload(), duplicate)),
+                        String.class
+                );
+        List<Map<String, Object>> results = objectMapper.convertValue(getData(response.getBody()), new TypeReference<>() {
+        });
+        Assertions.assertAll("Create Batch",
+                () -> Assertions.assertEquals(HttpStatus.OK, response.getStatusCode(), "HTTP Status code must be 200 ok"),
+                () -> Assertions.assertEquals(true, results.get(0).get("success"), "First user must be created"),
+                () -> Assertions.assertEquals(false, results.get(1).get("success"), "Duplicate email must be rejected")
+        );
+    }
+
+    @Test
+    public void importCsv() throws Exception {
+        clearData();
+
+        String csv = String.join("\n",
+                "firstName,lastName,email,phoneNumber,dateOfBirth,gender,activeStartDate,activeEndDate,city,country",
+                "John,Doe,johndoe@kct.co.id,14022,1990-01-01,MALE,2024-01-01,2030-12-31,Jakarta,Indonesia",
+                "Jane,\"Doe, Jr\",janedoe@kct.co.id,14023,1991-01-01,FEMALE,2024-01-01,2030-12-31,,",
+                "Bad,Row,bad@kct.co.id,14024,not-a-date,MALE,2024-01-01,2030-12-31,,",
+                "Dup,Row,JOHNDOE@kct.co.id,14025,1990-01-01,MALE,2024-01-01,2030-12-31,,");
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_TYPE, "text/csv");
+        String BASE_URL = String.format("http://localhost:%s/users/imports", port);
+        ResponseEntity<String> response = restTemplate
+                .exchange(
+                        BASE_URL,
+                        HttpMethod.POST,
+                        new HttpEntity<>(csv, headers),
+                        String.class
+                );
+        Map<String, Object> accepted = objectMapper.convertValue(getData(response.getBody()), new TypeReference<>() {
+        });
+        String location = String.valueOf(response.getHeaders().getLocation());
+        ResponseEntity<String> status;
+        Map<String, Object> job;
+        int attempt = 0;
+        do {
+            Thread.sleep(50);
+            status = restTemplate.getForEntity(String.format("http://localhost:%s%s", port, location), String.class);
+            job = objectMapper.convertValue(getData(status.getBody()), new TypeReference<>() {
+            });
+        } while ("RUNNING".equals(job.get("status")) && ++attempt < 100);
+        ResponseEntity<String> polled = status;
+        Map<String, Object> finished = job;
+        Assertions.assertAll("Import CSV",
+                () -> Assertions.assertEquals(HttpStatus.ACCEPTED, response.getStatusCode(), "HTTP Status code must be 202 accepted"),
+                () -> Assertions.assertEquals("/users/imports/" + accepted.get("id"), location, "Location must point at the job"),
+                () -> Assertions.assertEquals("COMPLETED", finished.get("status"), "Import must complete"),
+                () -> Assertions.assertEquals(4, ((Number) finished.get("read")).intValue(), "Every data row must be read"),
+                () -> Assertions.assertEquals(2, ((Number) finished.get("persisted")).intValue(), "Valid rows must be persisted"),
+                () -> Assertions.assertEquals(2, ((Number) finished.get("rejected")).intValue(), "Bad date and duplicate email must be rejected"),
+                () -> Assertions.assertEquals(2, userRepository.count(), "Only valid rows must be stored"),
+                () -> Assertions.assertEquals(HttpStatus.OK, polled.getStatusCode(), "Import must stay queryable")
+        );
+    }
+
     @Test
     public void getById() throws Exception {
         User user = createInvalidUser();
@@ -128,13 +375,236 @@ public class UserControllerTests {
                         BASE_URL,
                         String.class
                 );
-        User userResponse = OBJECT_MAPPER.readValue(response.getBody(), User.class);
+        User userResponse = objectMapper.readValue(response.getBody(), User.class);
         Assertions.assertAll("Get By Id",
                 () -> Assertions.assertEquals(HttpStatus.OK, response.getStatusCode(), "HTTP Status code must be 200 ok"),
                 () -> Assertions.assertEquals(user.getId(), userResponse.getId(), "ID must be same")
         );
     }
 
+    @Test
+    public void getByIdNotModified() {
+        User user = createInvalidUser();
+
+        String BASE_URL = String.format("http://localhost:%s/users/%s", port, user.getId());
+
+        ResponseEntity<String> response = restTemplate
+                .getForEntity(
+                        BASE_URL,
+                        String.class
+                );
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(response.getHeaders().getETag());
+        ResponseEntity<String> notModified = restTemplate
+                .exchange(
+                        BASE_URL,
+                        HttpMethod.GET,
+                        new HttpEntity<>(headers),
+                        String.class
+                );
+        Assertions.assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode(), "HTTP Status code must be 304 not modified");
+    }
+
+    @Test
+    public void editIfMatch() {
+        User user = createInvalidUser();
+
+        String BASE_URL = String.format("http://localhost:%s/users/%s", port, user.getId());
+
+        String eTag = restTemplate.getForEntity(BASE_URL, String.class).getHeaders().getETag();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch(eTag);
+        ResponseEntity<String> updated = restTemplate
+                .exchange(
+                        BASE_URL,
+                        HttpMethod.PUT,
+                        new HttpEntity<>(createUserPayload(), headers),
+                        String.class
+                );
+        ResponseEntity<String> stale = restTemplate
+                .exchange(
+                        BASE_URL,
+                        HttpMethod.PUT,
+                        new HttpEntity<>(createUserPayload(), headers),
+                        String.class
+                );
+        Assertions.assertAll("Edit If-Match",
+                () -> Assertions.assertEquals(HttpStatus.OK, updated.getStatusCode(), "HTTP Status code must be 200 when the version matches"),
+                () -> Assertions.assertNotEquals(eTag, updated.getHeaders().getETag(), "ETag must change with the version"),
+                () -> Assertions.assertEquals(HttpStatus.PRECONDITION_FAILED, stale.getStatusCode(), "HTTP Status code must be 412 for a stale version")
+        );
+    }
+
+    @Test
+    public void editAsync() throws Exception {
+        User user = createInvalidUser();
+
+        String BASE_URL = String.format("http://localhost:%s/users/%s", port, user.getId());
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Prefer", "respond-async");
+        UserPayload first = createUserPayload();
+        first.setFirstName("Queued");
+        UserPayload last = createUserPayload();
+        last.setFirstName("Coalesced");
+
+        long coalescedBefore = getCoalescedCount();
+        ResponseEntity<String> accepted = restTemplate.exchange(BASE_URL, HttpMethod.PUT, new HttpEntity<>(first, headers), String.class);
+        restTemplate.exchange(BASE_URL, HttpMethod.PUT, new HttpEntity<>(last, headers), String.class);
+        long coalescedAfter = getCoalescedCount();
+        String firstName = null;
+        for (int attempt = 0; attempt < 100 && !"Coalesced".equals(firstName); attempt++) {
+            Thread.sleep(100);
+            firstName = objectMapper.convertValue(getData(restTemplate.getForEntity(BASE_URL, String.class).getBody()), UserDTO.class).getFirstName();
+        }
+        String flushedFirstName = firstName;
+        Assertions.assertAll("Edit Async",
+                () -> Assertions.assertEquals(HttpStatus.ACCEPTED, accepted.getStatusCode(), "HTTP Status code must be 202 accepted"),
+                () -> Assertions.assertEquals(coalescedBefore + 1, coalescedAfter, "Second update must be coalesced into the queued one"),
+                () -> Assertions.assertEquals("Coalesced", flushedFirstName, "Queued updates must be flushed with the last one winning")
+        );
+    }
+
+    @Test
+    public void patch() throws Exception {
+        User user = createInvalidUser();
+
+        String BASE_URL = String.format("http://localhost:%s/users/%s", port, user.getId());
+        ResponseEntity<String> response = patch(BASE_URL, Map.of("firstName", "Jane"));
+        User patched = userRepository.findById(user.getId()).orElseThrow();
+        Assertions.assertAll("Patch",
+                () -> Assertions.assertEquals(HttpStatus.OK, response.getStatusCode(), "HTTP Status code must be 200 ok"),
+                () -> Assertions.assertEquals("Jane", patched.getFirstName(), "Patched field must be stored"),
+                () -> Assertions.assertEquals("Doe", patched.getLastName(), "Fields left out of the patch must be kept"),
+                () -> Assertions.assertEquals("NY", patched.getAddress().getCity(), "Address left out of the patch must be kept")
+        );
+    }
+
+    @Test
+    public void patchUnchanged() throws Exception {
+        User user = createInvalidUser();
+        User before = userRepository.findById(user.getId()).orElseThrow();
+
+        String BASE_URL = String.format("http://localhost:%s/users/%s", port, user.getId());
+        ResponseEntity<String> response = patch(BASE_URL, Map.of("firstName", "John", "address", Map.of("city", "NY")));
+        User patched = userRepository.findById(user.getId()).orElseThrow();
+        Assertions.assertAll("Patch Unchanged",
+                () -> Assertions.assertEquals(HttpStatus.OK, response.getStatusCode(), "HTTP Status code must be 200 ok"),
+                () -> Assertions.assertEquals(before.getVersion(), patched.getVersion(), "Patch without changes must not update the row"),
+                () -> Assertions.assertEquals(before.getUpdatedAt(), patched.getUpdatedAt(), "Patch without changes must not bump updatedAt")
+        );
+    }
+
+    @Test
+    public void patchInvalidAddress() throws Exception {
+        User user = createInvalidUser();
+
+        String BASE_URL = String.format("http://localhost:%s/users/%s", port, user.getId());
+        ResponseEntity<String> response = patch(BASE_URL, Map.of("address", "NY"));
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "HTTP Status code must be 400 when address is not an object");
+    }
+
+    @Test
+    public void patchCreatesAddress() throws Exception {
+        User user = createInvalidUser();
+        userRepository.save(user.setAddress(null));
+
+        String BASE_URL = String.format("http://localhost:%s/users/%s", port, user.getId());
+        ResponseEntity<String> partial = patch(BASE_URL, Map.of("address", Map.of("city", "Jakarta")));
+        ResponseEntity<String> complete = patch(BASE_URL, Map.of("address", Map.of(
+                "streetAddress", "Jl. Sudirman", "city", "Jakarta", "state", "DKI Jakarta", "postalCode", "10220", "country", "Indonesia")));
+        User patched = userRepository.findById(user.getId()).orElseThrow();
+        Assertions.assertAll("Patch Creates Address",
+                () -> Assertions.assertEquals(HttpStatus.BAD_REQUEST, partial.getStatusCode(), "HTTP Status code must be 400 for an incomplete new address"),
+                () -> Assertions.assertEquals(HttpStatus.OK, complete.getStatusCode(), "HTTP Status code must be 200 for a complete new address"),
+                () -> Assertions.assertEquals("Jakarta", patched.getAddress().getCity(), "New address must be stored")
+        );
+    }
+
+    @Test
+    public void cacheStats() throws Exception {
+        User user = createInvalidUser();
+
+        String BASE_URL = String.format("http://localhost:%s/users/%s", port, user.getId());
+        Map<String, Long> before = getCacheStats();
+        restTemplate.getForEntity(BASE_URL, String.class);
+        Map<String, Long> afterMiss = getCacheStats();
+        restTemplate.getForEntity(BASE_URL, String.class);
+        Map<String, Long> afterHit = getCacheStats();
+        Assertions.assertAll("Cache Stats",
+                () -> Assertions.assertEquals(before.get("missCount") + 1, afterMiss.get("missCount"), "First read must be counted as a miss"),
+                () -> Assertions.assertEquals(before.get("hitCount"), afterMiss.get("hitCount"), "First read must not be counted as a hit"),
+                () -> Assertions.assertEquals(afterMiss.get("hitCount") + 1, afterHit.get("hitCount"), "Second read must be served from the cache"),
+                () -> Assertions.assertEquals(afterMiss.get("missCount"), afterHit.get("missCount"), "Second read must not load the row"),
+                () -> Assertions.assertTrue(afterHit.get("size") >= 1, "Cached user must be counted in the size")
+        );
+    }
+
+    @Test
+    public void cacheEvictedOnWrite() throws Exception {
+        User user = createInvalidUser();
+
+        String BASE_URL = String.format("http://localhost:%s/users/%s", port, user.getId());
+        restTemplate.getForEntity(BASE_URL, String.class);
+        UserPayload payload = createUserPayload();
+        payload.setFirstName("Put");
+        restTemplate.put(BASE_URL, payload);
+        String afterPut = getFirstName(BASE_URL);
+        patch(BASE_URL, Map.of("firstName", "Patch"));
+        String afterPatch = getFirstName(BASE_URL);
+        restTemplate.delete(BASE_URL);
+        ResponseEntity<String> afterDelete = restTemplate.getForEntity(BASE_URL, String.class);
+        Assertions.assertAll("Cache Evicted On Write",
+                () -> Assertions.assertEquals("Put", afterPut, "Read after PUT must not be served the cached row"),
+                () -> Assertions.assertEquals("Patch", afterPatch, "Read after PATCH must not be served the cached row"),
+                () -> Assertions.assertEquals(HttpStatus.NOT_FOUND, afterDelete.getStatusCode(), "Read after DELETE must not be served the cached row")
+        );
+    }
+
+    @Test
+    public void getByIdNotFound() {
+        clearData();
+
+        String BASE_URL = String.format("http://localhost:%s/users/%s", port, Long.MAX_VALUE);
+
+        ResponseEntity<String> response = restTemplate
+                .getForEntity(
+                        BASE_URL,
+                        String.class
+                );
+        Assertions.assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode(), "HTTP Status code must be 404 not found");
+    }
+
+    @Test
+    public void changes() throws Exception {
+        clearData();
+        LocalDateTime since = LocalDateTime.now().minusSeconds(1L);
+
+        UserDTO kept = objectMapper.convertValue(getData(createUser(createUserPayload()).getBody()), UserDTO.class);
+        UserPayload deletedPayload = createUserPayload();
+        deletedPayload.setEmail("deleted@kct.co.id");
+        deletedPayload.setPhoneNumber("14047");
+        UserDTO created = objectMapper.convertValue(getData(createUser(deletedPayload).getBody()), UserDTO.class);
+        restTemplate.delete(String.format("http://localhost:%s/users/%s", port, created.getId()));
+
+        String BASE_URL = String.format("http://localhost:%s/users/changes", port);
+        ResponseEntity<String> response = restTemplate.getForEntity(BASE_URL + "?since={since}", String.class, since);
+        Map<String, Object> abstractResponse = objectMapper.readValue(response.getBody(), new TypeReference<>() {
+        });
+        List<Map<String, Object>> changes = objectMapper.convertValue(abstractResponse.get("data"), new TypeReference<>() {
+        });
+        ResponseEntity<String> invalid = restTemplate.getForEntity(BASE_URL + "?token=invalid", String.class);
+        Assertions.assertAll("Changes",
+                () -> Assertions.assertEquals(HttpStatus.OK, response.getStatusCode(), "HTTP Status code must be 200 ok"),
+                () -> Assertions.assertNotNull(abstractResponse.get("nextToken"), "Changes must return a continuation token"),
+                () -> Assertions.assertTrue(changes.stream().anyMatch(change -> "CREATED".equals(change.get("type"))
+                        && kept.getId().equals(((Number) change.get("id")).longValue())), "Created user must be returned as CREATED"),
+                () -> Assertions.assertTrue(changes.stream().anyMatch(change -> "DELETED".equals(change.get("type"))
+                        && created.getId().equals(((Number) change.get("id")).longValue())), "Deleted user must be returned as DELETED"),
+                () -> Assertions.assertTrue(userTombstoneRepository.existsById(created.getId()), "Delete must leave a tombstone"),
+                () -> Assertions.assertEquals(HttpStatus.BAD_REQUEST, invalid.getStatusCode(), "Invalid token must be rejected")
+        );
+    }
+
 //    @Test
     public void delete() {
         User user = createInvalidUser();
@@ -189,7 +659,7 @@ public class UserControllerTests {
 
         ResponseEntity<String> response = updateUser(user.getId(), payload);
 
-        Map<String, Object> abstractResponse = OBJECT_MAPPER.readValue(response.getBody(), new TypeReference<>() {
+        Map<String, Object> abstractResponse = objectMapper.readValue(response.getBody(), new TypeReference<>() {
         });
 
         assertionsValidation("Edit Duplicate Phone Number", response, abstractResponse);
@@ -204,7 +674,7 @@ public class UserControllerTests {
 
         ResponseEntity<String> response = createUser(payload);
 
-        Map<String, Object> abstractResponse = OBJECT_MAPPER.readValue(response.getBody(), new TypeReference<>() {
+        Map<String, Object> abstractResponse = objectMapper.readValue(response.getBody(), new TypeReference<>() {
         });
 
         assertionsValidation("Duplicate Phone Number", response, abstractResponse);
@@ -220,7 +690,7 @@ public class UserControllerTests {
 
         ResponseEntity<String> response = createUser(payload);
 
-        Map<String, Object> abstractResponse = OBJECT_MAPPER.readValue(response.getBody(), new TypeReference<>() {
+        Map<String, Object> abstractResponse = objectMapper.readValue(response.getBody(), new TypeReference<>() {
         });
 
         assertionsValidation("Duplicate Email", response, abstractResponse);
@@ -236,7 +706,7 @@ public class UserControllerTests {
 
         ResponseEntity<String> response = updateUser(user.getId(), payload);
 
-        Map<String, Object> abstractResponse = OBJECT_MAPPER.readValue(response.getBody(), new TypeReference<>() {
+        Map<String, Object> abstractResponse = objectMapper.readValue(response.getBody(), new TypeReference<>() {
         });
 
         assertionsValidation("Duplicate Email", response, abstractResponse);
@@ -257,7 +727,7 @@ public class UserControllerTests {
 
         ResponseEntity<String> response = createUser(payload);
 
-        Map<String, Object> abstractResponse = OBJECT_MAPPER.readValue(response.getBody(), new TypeReference<>() {
+        Map<String, Object> abstractResponse = objectMapper.readValue(response.getBody(), new TypeReference<>() {
         });
 
         assertionsValidation(String.format("Invalid Column %s", columnName), response, abstractResponse);
@@ -271,7 +741,7 @@ public class UserControllerTests {
 
         ResponseEntity<String> response = createUser(payload);
 
-        Map<String, Object> abstractResponse = OBJECT_MAPPER.readValue(response.getBody(), new TypeReference<>() {
+        Map<String, Object> abstractResponse = objectMapper.readValue(response.getBody(), new TypeReference<>() {
         });
 
         assertionsValidation(String.format("Invalid Length Column %s", "firstName"), response, abstractResponse);
@@ -285,7 +755,7 @@ public class UserControllerTests {
 
         ResponseEntity<String> response = updateUser(user.getId(), payload);
 
-        Map<String, Object> abstractResponse = OBJECT_MAPPER.readValue(response.getBody(), new TypeReference<>() {
+        Map<String, Object> abstractResponse = objectMapper.readValue(response.getBody(), new TypeReference<>() {
         });
 
         assertionsValidation(String.format("Invalid Edit Length Column %s", "lastName"), response, abstractResponse);
@@ -306,14 +776,31 @@ public class UserControllerTests {
 
         ResponseEntity<String> response = updateUser(user.getId(), payload);
 
-        Map<String, Object> abstractResponse = OBJECT_MAPPER.readValue(response.getBody(), new TypeReference<>() {
+        Map<String, Object> abstractResponse = objectMapper.readValue(response.getBody(), new TypeReference<>() {
         });
 
         assertionsValidation(String.format("Invalid Column %s", columnName), response, abstractResponse);
     }
 
+    private Map<String, Long> getCacheStats() throws Exception {
+        ResponseEntity<String> response = restTemplate.getForEntity(String.format("http://localhost:%s/users/cache/stats", port), String.class);
+        return objectMapper.convertValue(getData(response.getBody()), new TypeReference<>() {
+        });
+    }
+
+    private long getCoalescedCount() throws Exception {
+        ResponseEntity<String> response = restTemplate.getForEntity(String.format("http://localhost:%s/users/write-behind", port), String.class);
+        Map<String, Object> status = objectMapper.convertValue(getData(response.getBody()), new TypeReference<>() {
+        });
+        return ((Number) status.get("coalesced")).longValue();
+    }
+
+    private String getFirstName(String url) throws Exception {
+        return objectMapper.convertValue(getData(restTemplate.getForEntity(url, String.class).getBody()), UserDTO.class).getFirstName();
+    }
+
     private Object getData(String responseBody) throws Exception {
-        Map<String, Object> abstractResponse = OBJECT_MAPPER.readValue(responseBody, new TypeReference<>() {
+        Map<String, Object> abstractResponse = objectMapper.readValue(responseBody, new TypeReference<>() {
         });
         return abstractResponse.get("data");
     }
@@ -339,6 +826,12 @@ public class UserControllerTests {
         return userRepository.save(user);
     }
 
+    private ResponseEntity<String> patch(String url, Map<String, Object> changes) {
+        // the default request factory cannot send PATCH
+        TestRestTemplate patchTemplate = new TestRestTemplate(new RestTemplateBuilder().requestFactory(JdkClientHttpRequestFactory.class));
+        return patchTemplate.exchange(url, HttpMethod.PATCH, new HttpEntity<>(changes), String.class);
+    }
+
     private UserPayload createUserPayload() {
         UserPayload payload = new UserPayload();
         payload.setFirstName("John");
@@ -361,17 +854,17 @@ public class UserControllerTests {
 
     private UserPayload createInvalidPayload(String column) {
         UserPayload userPayload = createUserPayload();
-        Map<String, Object> payload = OBJECT_MAPPER.convertValue(userPayload, new TypeReference<>() {
+        Map<String, Object> payload = objectMapper.convertValue(userPayload, new TypeReference<>() {
         });
         payload.put(column, null);
-        return OBJECT_MAPPER.convertValue(payload, UserPayload.class);
+        return objectMapper.convertValue(payload, UserPayload.class);
     }
 
     private UserPayload createInvalidLengthPayload(String column) {
         UserPayload userPayload = createUserPayload();
-        Map<String, Object> payload = OBJECT_MAPPER.convertValue(userPayload, new TypeReference<>() {
+        Map<String, Object> payload = objectMapper.convertValue(userPayload, new TypeReference<>() {
         });
         payload.put(column, "Z!huyv/T)+#ekDhL5_A;UJ-bvX[UC)UVUipH!+)(SG@[dPN-CiR]?f:M90Tv=zX$$+MU&y2[d4F}hg]_-hHX7h!AW!bM:cr5B@H(jJ7tvB&vph.j1xQv*.GW3}CnY=3*z9#8[1dWP7A3:TqM;hQtF5*[Sm;e%yN.FCTcvq!zhxX.*)qMkCYS_KLyEER*{Kn-a-b7CXXLN4Pemuvc:Tk]Qa)/)4$dw%](5rek7Nt/e@,4F0WY4$3:Dz.;r8_uJZG#1r&!59;nhR?2#H8_6L/{2T!/!a}g+zf)[Bf(rANBw&U:");
-        return OBJECT_MAPPER.convertValue(payload, UserPayload.class);
+        return objectMapper.convertValue(payload, UserPayload.class);
     }
 }
@@ -0,0 +1,38 @@
+package kct.co.id.skilltest;
+
+import kct.co.id.skilltest.entity.Address;
+import kct.co.id.skilltest.entity.User;
+import kct.co.id.skilltest.enumerate.Gender;
+
+import java.time.LocalDate;
+
+/**
+ * Seed users for tests and benchmarks.
+ */
+public final class UserFixtures {
+    private UserFixtures() {
+    }
+
+    /**
+     * An active user whose email and phone number are unique per {@code n}.
+     */
+    public static User user(long n) {
+        User user = new User();
+        user.setFirstName("John");
+        user.setLastName("Doe");
+        user.setEmail(String.format("johndoe%s@kct.co.id", n));
+        user.setPhoneNumber(String.format("1%08d", n));
+        user.setDateOfBirth(LocalDate.now().minusYears(17L));
+        user.setGender(Gender.MALE);
+        user.setActiveStartDate(LocalDate.now().minusDays(1L));
+        user.setActiveEndDate(LocalDate.now().plusYears(1L));
+        Address address = new Address();
+        address.setStreetAddress("NY");
+        address.setState("NY");
+        address.setCity("NY");
+        address.setPostalCode("NY");
+        address.setCountry("NY");
+        user.setAddress(address);
+        return user;
+    }
+}
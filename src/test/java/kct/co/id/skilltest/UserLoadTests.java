@@ -0,0 +1,95 @@
+package kct.co.id.skilltest;
+
+import kct.co.id.skilltest.entity.User;
+import kct.co.id.skilltest.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.thread.Threading;
+import org.springframework.core.env.Environment;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Run with {@code mvn test -Dtest=UserLoadTests -Dloadtest=true}, once as is and once with
+ * {@code -Pvirtual-threads}, and compare the printed throughput and latency.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+public class UserLoadTests {
+    private static final int USERS = 1_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 1_000);
+    private static final int REQUESTS = Integer.getInteger("loadtest.requests", 50_000);
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private Environment environment;
+
+    @Test
+    public void get() throws Exception {
+        seed();
+        HttpClient client = HttpClient
+                .newBuilder()
+                .executor(Executors.newFixedThreadPool(16))
+                .build();
+        Semaphore semaphore = new Semaphore(CONCURRENCY);
+        AtomicInteger failures = new AtomicInteger();
+        long[] latencies = new long[REQUESTS];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[REQUESTS];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            semaphore.acquire();
+            int index = i;
+            URI uri = URI.create(String.format("http://localhost:%s/users?after=%s&size=%s", port, i % (USERS - PAGE_SIZE), PAGE_SIZE));
+            long sent = System.nanoTime();
+            futures[i] = client
+                    .sendAsync(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        latencies[index] = System.nanoTime() - sent;
+                        if (error != null || response.statusCode() != 200) {
+                            failures.incrementAndGet();
+                        }
+                        semaphore.release();
+                    });
+        }
+        CompletableFuture.allOf(futures).exceptionally(error -> null).join();
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        System.out.printf("%s threads, concurrency %s: %.0f req/s, p50 %.1f ms, p99 %.1f ms, max %.1f ms, failures %s%n",
+                Threading.VIRTUAL.isActive(environment) ? "virtual" : "platform",
+                CONCURRENCY,
+                REQUESTS / (elapsed / 1e9),
+                latencies[REQUESTS / 2] / 1e6,
+                latencies[(int) (REQUESTS * 0.99)] / 1e6,
+                latencies[REQUESTS - 1] / 1e6,
+                failures.get());
+        Assertions.assertEquals(0, failures.get(), "All requests must succeed");
+    }
+
+    private void seed() {
+        userRepository.deleteAll();
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(UserFixtures.user(i));
+        }
+        userRepository.saveAll(users);
+    }
+}
@@ -0,0 +1,75 @@
+package kct.co.id.skilltest.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kct.co.id.skilltest.config.JacksonConfig;
+import kct.co.id.skilltest.dto.AddressDTO;
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.enumerate.Gender;
+import kct.co.id.skilltest.model.BaseResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BaseResponseBenchmark {
+    @Param({"100", "10000"})
+    private int size;
+    private ObjectMapper objectMapper;
+    private BaseResponse<List<UserDTO>> response;
+
+    @Setup
+    public void setup() {
+        // built the way Spring Boot builds the application's mapper, so Blackbird and the shared date formats apply
+        JacksonConfig jacksonConfig = new JacksonConfig();
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder
+                .json()
+                .modulesToInstall(jacksonConfig.blackbirdModule());
+        jacksonConfig.dateFormatCustomizer().customize(builder);
+        objectMapper = builder.build();
+        List<UserDTO> userDTOS = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            UserDTO userDTO = new UserDTO();
+            userDTO.setId((long) i);
+            userDTO.setFirstName("John");
+            userDTO.setLastName("Doe");
+            userDTO.setEmail(String.format("johndoe%s@kct.co.id", i));
+            userDTO.setPhoneNumber(String.format("1%08d", i));
+            userDTO.setDateOfBirth(LocalDate.now().minusYears(17L));
+            userDTO.setGender(Gender.MALE);
+            userDTO.setActiveStartDate(LocalDate.now().minusDays(1L));
+            userDTO.setActiveEndDate(LocalDate.now().plusYears(1L));
+            userDTO.setCreatedAt(LocalDateTime.now());
+            userDTO.setUpdatedAt(LocalDateTime.now());
+            AddressDTO addressDTO = new AddressDTO();
+            addressDTO.setStreetAddress("NY");
+            addressDTO.setState("NY");
+            addressDTO.setCity("NY");
+            addressDTO.setPostalCode("NY");
+            addressDTO.setCountry("NY");
+            userDTO.setAddress(addressDTO);
+            userDTOS.add(userDTO);
+        }
+        response = BaseResponse
+                .<List<UserDTO>>builder()
+                .success(true)
+                .message("List users")
+                .data(userDTOS)
+                .build();
+    }
+
+    @Benchmark
+    public void serialize() throws Exception {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), response);
+    }
+}
@@ -0,0 +1,102 @@
+package kct.co.id.skilltest.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import kct.co.id.skilltest.dto.AddressDTO;
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.entity.Address;
+import kct.co.id.skilltest.entity.User;
+import kct.co.id.skilltest.enumerate.Gender;
+import kct.co.id.skilltest.mapper.UserMapper;
+import kct.co.id.skilltest.model.UserPayload;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.BeanUtils;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMapperBenchmark {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final UserMapper userMapper = new UserMapper();
+    private User user;
+    private UserPayload userPayload;
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(UserMapperBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    @Setup
+    public void setup() {
+        user = new User();
+        user.setId(1L);
+        user.setFirstName("John");
+        user.setLastName("Doe");
+        user.setEmail("johndoe@kct.co.id");
+        user.setPhoneNumber("14045");
+        user.setDateOfBirth(LocalDate.now().minusYears(17L));
+        user.setGender(Gender.MALE);
+        user.setActiveStartDate(LocalDate.now().minusDays(1L));
+        user.setActiveEndDate(LocalDate.now().plusYears(1L));
+        Address address = new Address();
+        address.setStreetAddress("NY");
+        address.setState("NY");
+        address.setCity("NY");
+        address.setPostalCode("NY");
+        address.setCountry("NY");
+        user.setAddress(address);
+
+        userPayload = new UserPayload();
+        userPayload.setFirstName("John");
+        userPayload.setLastName("Doe");
+        userPayload.setEmail("johndoe@kct.co.id");
+        userPayload.setPhoneNumber("14045");
+        userPayload.setDateOfBirth(LocalDate.now().minusYears(17L));
+        userPayload.setGender(Gender.MALE);
+        userPayload.setActiveStartDate(LocalDate.now().minusDays(1L));
+        userPayload.setActiveEndDate(LocalDate.now().plusYears(1L));
+        AddressDTO addressDTO = new AddressDTO();
+        addressDTO.setStreetAddress("NY");
+        addressDTO.setState("NY");
+        addressDTO.setCity("NY");
+        addressDTO.setPostalCode("NY");
+        addressDTO.setCountry("NY");
+        userPayload.setAddress(addressDTO);
+    }
+
+    @Benchmark
+    public UserDTO toDTOConvertValue() {
+        return OBJECT_MAPPER.convertValue(user, UserDTO.class);
+    }
+
+    @Benchmark
+    public UserDTO toDTOMapper() {
+        return userMapper.toDTO(user);
+    }
+
+    @Benchmark
+    public User toEntityCopyProperties() {
+        User target = new User();
+        Address address = new Address();
+        BeanUtils.copyProperties(userPayload, target);
+        BeanUtils.copyProperties(userPayload.getAddress(), address);
+        target.setAddress(address);
+        return target;
+    }
+
+    @Benchmark
+    public User toEntityMapper() {
+        return userMapper.toEntity(userPayload);
+    }
+}
@@ -0,0 +1,111 @@
+package kct.co.id.skilltest.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import kct.co.id.skilltest.SkilltestApplication;
+import kct.co.id.skilltest.UserFixtures;
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.entity.User;
+import kct.co.id.skilltest.model.UserFilter;
+import kct.co.id.skilltest.repository.UserRepository;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserRepositoryBenchmark {
+    private static final int USERS = 10_000;
+    private final AtomicLong sequence = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate readOnlyTransactionTemplate;
+    private List<Long> ids;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(SkilltestApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN")
+                .run();
+        userRepository = context.getBean(UserRepository.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        readOnlyTransactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransactionTemplate.setReadOnly(true);
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(UserFixtures.user(sequence.incrementAndGet()));
+        }
+        ids = userRepository.saveAll(users).stream().map(User::getId).toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Served by the query cache once every id has been read.
+     */
+    @Benchmark
+    public UserDTO findDTOById() {
+        return userRepository.findDTOById(nextId()).orElseThrow();
+    }
+
+    /**
+     * Served by the second level cache once every id has been read.
+     */
+    @Benchmark
+    public User findById() {
+        return userRepository.findById(nextId()).orElseThrow();
+    }
+
+    @Benchmark
+    public UserDTO findDTOByIdUncached() {
+        return uncached(() -> userRepository.findDTOById(nextId()).orElseThrow());
+    }
+
+    @Benchmark
+    public User findByIdUncached() {
+        return uncached(() -> userRepository.findById(nextId()).orElseThrow());
+    }
+
+    @Benchmark
+    public List<UserDTO> searchPage() {
+        return userRepository.search(new UserFilter(), ids.get((int) (sequence.incrementAndGet() % (USERS - 100))), 100);
+    }
+
+    @Benchmark
+    public User save() {
+        return userRepository.save(UserFixtures.user(sequence.incrementAndGet()));
+    }
+
+    private Long nextId() {
+        return ids.get((int) (sequence.incrementAndGet() % USERS));
+    }
+
+    private <T> T uncached(Supplier<T> read) {
+        return readOnlyTransactionTemplate.execute(status -> {
+            // the session neither reads nor fills the second level and query caches, so the read goes to H2
+            entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+            return read.get();
+        });
+    }
+}
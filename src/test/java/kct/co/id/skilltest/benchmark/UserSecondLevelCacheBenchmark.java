@@ -0,0 +1,86 @@
+package kct.co.id.skilltest.benchmark;
+
+import jakarta.persistence.EntityManagerFactory;
+import kct.co.id.skilltest.SkilltestApplication;
+import kct.co.id.skilltest.UserFixtures;
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.entity.User;
+import kct.co.id.skilltest.repository.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Repeated reads of a small hot set with the second-level and query caches on and off. The {@code statements}
+ * counter reports JDBC statements prepared per operation, i.e. the database round-trips the caches save.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserSecondLevelCacheBenchmark {
+    private static final int USERS = 1_000;
+    private final AtomicLong sequence = new AtomicLong();
+    @Param({"true", "false"})
+    private boolean cache;
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private Statistics statistics;
+    private List<Long> ids;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RoundTrips {
+        public long statements;
+    }
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(SkilltestApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN",
+                        "spring.jpa.properties.hibernate.cache.use_second_level_cache=" + cache,
+                        "spring.jpa.properties.hibernate.cache.use_query_cache=" + cache)
+                .run();
+        userRepository = context.getBean(UserRepository.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(UserFixtures.user(sequence.incrementAndGet()));
+        }
+        ids = userRepository.saveAll(users).stream().map(User::getId).toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public User findById(RoundTrips roundTrips) {
+        long before = statistics.getPrepareStatementCount();
+        User user = userRepository.findById(ids.get((int) (sequence.incrementAndGet() % USERS))).orElseThrow();
+        // the eager address is resolved through its own region
+        user.getAddress().getCity();
+        roundTrips.statements += statistics.getPrepareStatementCount() - before;
+        return user;
+    }
+
+    @Benchmark
+    public UserDTO findDTOById(RoundTrips roundTrips) {
+        long before = statistics.getPrepareStatementCount();
+        UserDTO userDTO = userRepository.findDTOById(ids.get((int) (sequence.incrementAndGet() % USERS))).orElseThrow();
+        roundTrips.statements += statistics.getPrepareStatementCount() - before;
+        return userDTO;
+    }
+}
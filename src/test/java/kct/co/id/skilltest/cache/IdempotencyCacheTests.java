@@ -0,0 +1,36 @@
+package kct.co.id.skilltest.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+public class IdempotencyCacheTests {
+    private final IdempotencyCache idempotencyCache = new IdempotencyCache(new ObjectMapper(), 100, Duration.ofHours(24), Duration.ofMillis(100));
+
+    @Test
+    public void failedRunIsForgotten() throws Exception {
+        Map<String, String> request = Map.of("firstName", "John");
+
+        Assertions.assertThrows(IllegalStateException.class, () -> idempotencyCache.execute("key", request, () -> {
+            throw new IllegalStateException("Failed");
+        }));
+        String retried = idempotencyCache.execute("key", request, () -> "Retried");
+
+        Assertions.assertEquals("Retried", retried, "Retry after a failed run must run again");
+    }
+
+    @Test
+    public void runFailingWithErrorIsForgotten() throws Exception {
+        Map<String, String> request = Map.of("firstName", "John");
+
+        Assertions.assertThrows(StackOverflowError.class, () -> idempotencyCache.execute("key", request, () -> {
+            throw new StackOverflowError();
+        }));
+        String retried = idempotencyCache.execute("key", request, () -> "Retried");
+
+        Assertions.assertEquals("Retried", retried, "Retry after a run that threw an Error must run again instead of waiting for it");
+    }
+}
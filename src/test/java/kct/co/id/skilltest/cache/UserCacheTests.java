@@ -0,0 +1,66 @@
+package kct.co.id.skilltest.cache;
+
+import kct.co.id.skilltest.dto.UserDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class UserCacheTests {
+
+    private static UserDTO user(Long id, String firstName) {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setId(id);
+        userDTO.setFirstName(firstName);
+        return userDTO;
+    }
+
+    @Test
+    public void loadRacingEvictionIsNotCached() {
+        UserCache userCache = new UserCache(100, Duration.ofMinutes(10));
+        AtomicInteger loads = new AtomicInteger();
+
+        // the update commits and evicts while the read still holds the row it loaded before the update
+        UserDTO stale = userCache.get(1L, id -> {
+            loads.incrementAndGet();
+            userCache.evict(id);
+            return user(id, "Before");
+        });
+        UserDTO fresh = userCache.get(1L, id -> {
+            loads.incrementAndGet();
+            return user(id, "After");
+        });
+
+        Assertions.assertAll("Load racing eviction",
+                () -> Assertions.assertEquals("Before", stale.getFirstName(), "Racing read still answers with what it loaded"),
+                () -> Assertions.assertEquals("After", fresh.getFirstName(), "Next read must load the row again"),
+                () -> Assertions.assertEquals(2, loads.get(), "Row loaded before the eviction must not be cached")
+        );
+    }
+
+    @Test
+    public void loadWithoutEvictionIsCached() {
+        UserCache userCache = new UserCache(100, Duration.ofMinutes(10));
+        AtomicInteger loads = new AtomicInteger();
+
+        userCache.get(1L, id -> {
+            loads.incrementAndGet();
+            return user(id, "John");
+        });
+        userCache.get(1L, id -> {
+            loads.incrementAndGet();
+            return user(id, "John");
+        });
+        userCache.evict(1L);
+        userCache.get(1L, id -> {
+            loads.incrementAndGet();
+            return user(id, "John");
+        });
+
+        Assertions.assertAll("Load without eviction",
+                () -> Assertions.assertEquals(2, loads.get(), "Second read must hit and the read after eviction must load"),
+                () -> Assertions.assertEquals(1L, userCache.stats().get("hitCount"), "Hit must be counted")
+        );
+    }
+}
@@ -0,0 +1,106 @@
+package kct.co.id.skilltest.index;
+
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.enumerate.Gender;
+import kct.co.id.skilltest.event.UserChangedEvent;
+import kct.co.id.skilltest.model.UserStats;
+import kct.co.id.skilltest.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.Map;
+
+public class UserStatsIndexTests {
+
+    private static UserDTO user(Long id, Gender gender, Long version) {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setId(id);
+        userDTO.setGender(gender);
+        userDTO.setVersion(version);
+        return userDTO;
+    }
+
+    private static UserRepository.Bucket bucket(Object bucket, long users) {
+        return new UserRepository.Bucket() {
+            @Override
+            public Object getBucket() {
+                return bucket;
+            }
+
+            @Override
+            public Long getUsers() {
+                return users;
+            }
+        };
+    }
+
+    private static UserRepository.Versions version(Long id, Long version) {
+        return new UserRepository.Versions() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getVersion() {
+                return version;
+            }
+        };
+    }
+
+    @Test
+    public void rebuildReplaysEventsMissingFromSnapshot() {
+        UserStatsIndex userStatsIndex = new UserStatsIndex();
+        UserRepository userRepository = Mockito.mock(UserRepository.class);
+        PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        Mockito.when(transactionManager.getTransaction(Mockito.any())).thenReturn(new SimpleTransactionStatus());
+        ReflectionTestUtils.setField(userStatsIndex, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userStatsIndex, "transactionManager", transactionManager);
+
+        // the snapshot holds user 1 as male at version 0 and user 3 as female
+        Mockito.when(userRepository.countByGender()).thenAnswer(invocation -> {
+            // committed while the rebuild runs: user 3 made it into the snapshot, the others did not
+            userStatsIndex.onUserChanged(new UserChangedEvent(3L, null, user(3L, Gender.FEMALE, 0L)));
+            userStatsIndex.onUserChanged(new UserChangedEvent(1L, user(1L, Gender.MALE, 0L), user(1L, Gender.FEMALE, 1L)));
+            userStatsIndex.onUserChanged(new UserChangedEvent(2L, null, user(2L, Gender.FEMALE, 0L)));
+            return List.of(bucket(Gender.MALE, 1), bucket(Gender.FEMALE, 1));
+        });
+        Mockito.when(userRepository.findVersions(Mockito.any())).thenReturn(List.of(version(1L, 0L), version(3L, 0L)));
+        userStatsIndex.rebuild();
+        UserStats stats = userStatsIndex.snapshot();
+
+        Assertions.assertAll("Rebuild with concurrent changes",
+                () -> Assertions.assertEquals(3L, stats.getTotal(), "Create missing from the snapshot must be replayed, the one in it must not"),
+                () -> Assertions.assertEquals(Map.of("FEMALE", 3L), stats.getGender(), "Update missing from the snapshot must be replayed")
+        );
+    }
+
+    @Test
+    public void rebuildSkipsDeletedUserInSnapshot() {
+        UserStatsIndex userStatsIndex = new UserStatsIndex();
+        UserRepository userRepository = Mockito.mock(UserRepository.class);
+        PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        Mockito.when(transactionManager.getTransaction(Mockito.any())).thenReturn(new SimpleTransactionStatus());
+        ReflectionTestUtils.setField(userStatsIndex, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userStatsIndex, "transactionManager", transactionManager);
+
+        // user 1 was deleted before the snapshot, user 2 is still in it
+        Mockito.when(userRepository.countByGender()).thenAnswer(invocation -> {
+            userStatsIndex.onUserChanged(new UserChangedEvent(1L, user(1L, Gender.MALE, 0L), null));
+            return List.of(bucket(Gender.FEMALE, 1));
+        });
+        Mockito.when(userRepository.findVersions(Mockito.any())).thenReturn(List.of());
+        userStatsIndex.rebuild();
+        UserStats stats = userStatsIndex.snapshot();
+
+        Assertions.assertAll("Rebuild with a delete in the snapshot",
+                () -> Assertions.assertEquals(1L, stats.getTotal(), "Delete already in the snapshot must not be replayed"),
+                () -> Assertions.assertEquals(Map.of("FEMALE", 1L), stats.getGender(), "Counts must come from the snapshot")
+        );
+    }
+}
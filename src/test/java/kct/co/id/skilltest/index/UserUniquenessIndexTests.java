@@ -0,0 +1,115 @@
+package kct.co.id.skilltest.index;
+
+import kct.co.id.skilltest.dto.AddressDTO;
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.enumerate.Gender;
+import kct.co.id.skilltest.model.UserPayload;
+import kct.co.id.skilltest.service.UserService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@SpringBootTest
+public class UserUniquenessIndexTests {
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private static UserPayload payload(String email, String phoneNumber) {
+        UserPayload payload = new UserPayload();
+        payload.setFirstName("John");
+        payload.setLastName("Doe");
+        payload.setDateOfBirth(LocalDate.now().minusYears(17L));
+        payload.setActiveStartDate(LocalDate.now().minusDays(1L));
+        payload.setActiveEndDate(LocalDate.now().plusYears(1L));
+        payload.setEmail(email);
+        payload.setPhoneNumber(phoneNumber);
+        payload.setGender(Gender.MALE);
+        AddressDTO addressDTO = new AddressDTO();
+        addressDTO.setStreetAddress("NY");
+        addressDTO.setState("NY");
+        addressDTO.setCity("NY");
+        addressDTO.setPostalCode("NY");
+        addressDTO.setCountry("NY");
+        payload.setAddress(addressDTO);
+        return payload;
+    }
+
+    @Test
+    public void concurrentInsertsOfOneEmail() throws Exception {
+        int writers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<UserDTO>> results = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                UserPayload payload = payload("race@kct.co.id", "1500" + i);
+                Callable<UserDTO> insert = () -> {
+                    start.await();
+                    return userService.post(payload).getData();
+                };
+                results.add(executor.submit(insert));
+            }
+            start.countDown();
+            int created = 0;
+            int rejected = 0;
+            for (Future<UserDTO> result : results) {
+                try {
+                    result.get();
+                    created++;
+                } catch (ExecutionException e) {
+                    Assertions.assertEquals(HttpStatus.BAD_REQUEST, ((ResponseStatusException) e.getCause()).getStatusCode(), "Duplicate must be rejected with 400");
+                    rejected++;
+                }
+            }
+            int createdUsers = created;
+            int rejectedUsers = rejected;
+            Assertions.assertAll("Concurrent inserts",
+                    () -> Assertions.assertEquals(1, createdUsers, "Exactly one insert of the email must succeed"),
+                    () -> Assertions.assertEquals(writers - 1, rejectedUsers, "Every other insert must be rejected")
+            );
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void rollbackReleasesKeys() throws Exception {
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                userService.post(payload("rollback@kct.co.id", "15100"));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            status.setRollbackOnly();
+        });
+
+        UserDTO userDTO = userService.post(payload("rollback@kct.co.id", "15100")).getData();
+        Assertions.assertNotNull(userDTO.getId(), "Email and phone number of a rolled back insert must be free again");
+    }
+
+    @Test
+    public void deleteReleasesKeys() throws Exception {
+        UserDTO deleted = userService.post(payload("reuse@kct.co.id", "15200")).getData();
+        Assertions.assertThrows(ResponseStatusException.class, () -> userService.post(payload("reuse@kct.co.id", "15201")), "Email in use must be rejected");
+        userService.delete(deleted.getId());
+
+        UserDTO userDTO = userService.post(payload("Reuse@kct.co.id", "15200")).getData();
+        Assertions.assertNotEquals(deleted.getId(), userDTO.getId(), "Email and phone number of a deleted user must be free again");
+    }
+}
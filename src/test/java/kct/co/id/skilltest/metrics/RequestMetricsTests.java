@@ -0,0 +1,78 @@
+package kct.co.id.skilltest.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import kct.co.id.skilltest.UserFixtures;
+import kct.co.id.skilltest.entity.User;
+import kct.co.id.skilltest.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class RequestMetricsTests {
+    private static final String URI = "/users/{id}";
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private long phaseCount(String phase) {
+        Timer timer = meterRegistry.find("users.request.phase").tags("uri", URI, "method", "GET", "phase", phase).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private DistributionSummary statements() {
+        return meterRegistry.find("users.request.statements").tags("uri", URI, "method", "GET").summary();
+    }
+
+    private DistributionSummary awaitStatements(long count) throws InterruptedException {
+        // recorded after completion, which may run once the client already has the body
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while ((statements() == null || statements().count() < count) && System.nanoTime() < deadline) {
+            Thread.sleep(10L);
+        }
+        return statements();
+    }
+
+    @Test
+    public void recordsPhasesAndStatementsPerRequest() throws Exception {
+        User user = userRepository.save(UserFixtures.user(19_000L));
+        String BASE_URL = String.format("http://localhost:%s/users/%s", port, user.getId());
+        long db = phaseCount("db");
+        long mapping = phaseCount("mapping");
+        long serialization = phaseCount("serialization");
+        DistributionSummary before = statements();
+        long countBefore = before == null ? 0 : before.count();
+        double totalBefore = before == null ? 0 : before.totalAmount();
+
+        // the first read loads the row with one query, the second is served by UserCache
+        ResponseEntity<String> miss = restTemplate.getForEntity(BASE_URL, String.class);
+        double totalAfterMiss = awaitStatements(countBefore + 1).totalAmount();
+        ResponseEntity<String> hit = restTemplate.getForEntity(BASE_URL, String.class);
+        DistributionSummary after = awaitStatements(countBefore + 2);
+
+        Assertions.assertAll("Request Metrics",
+                () -> Assertions.assertEquals(HttpStatus.OK, miss.getStatusCode(), "Http Status Code must be OK"),
+                () -> Assertions.assertEquals(HttpStatus.OK, hit.getStatusCode(), "Http Status Code must be OK"),
+                () -> Assertions.assertEquals(db + 2, phaseCount("db"), "Database time must be recorded for every request"),
+                () -> Assertions.assertEquals(mapping + 2, phaseCount("mapping"), "Mapping time must be recorded for every request"),
+                () -> Assertions.assertEquals(serialization + 2, phaseCount("serialization"), "Serialization time must be recorded for every request"),
+                () -> Assertions.assertEquals(countBefore + 2, after.count(), "Statement count must be recorded for every request"),
+                () -> Assertions.assertEquals(totalBefore + 1, totalAfterMiss, "Cache miss must count the one query that loads the user"),
+                () -> Assertions.assertEquals(totalAfterMiss, after.totalAmount(), "Cache hit must not count any statement")
+        );
+    }
+}
@@ -0,0 +1,40 @@
+package kct.co.id.skilltest.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+
+import java.sql.SQLException;
+
+public class FailureMessagesTests {
+
+    private static DataIntegrityViolationException violation(String sqlState) {
+        SQLException cause = new SQLException("Unique index or primary key violation: \"PUBLIC.USERS(EMAIL)\"; SQL statement: insert into users ...", sqlState);
+        return new DataIntegrityViolationException("could not execute statement [" + cause.getMessage() + "]", cause);
+    }
+
+    @Test
+    public void writeFailuresDoNotLeakSql() {
+        Assertions.assertAll("Write failures",
+                () -> Assertions.assertEquals("User already exists", FailureMessages.write(violation("23505")), "Unique violation must get a fixed message"),
+                () -> Assertions.assertEquals("A required field is missing", FailureMessages.write(violation("23502")), "Not null violation must get a fixed message"),
+                () -> Assertions.assertEquals("A value is too long", FailureMessages.write(violation("22001")), "Length violation must get a fixed message"),
+                () -> Assertions.assertEquals("Unexpected error", FailureMessages.write(new IllegalStateException("select * from users")), "Unknown failure must get a generic message")
+        );
+    }
+
+    @Test
+    public void readFailuresNameTheField() {
+        UserRecordParser csv = UserRecordParser.of(UserRecordParser.TEXT_CSV, new ObjectMapper());
+        UserRecordParser ndjson = UserRecordParser.of(MediaType.APPLICATION_NDJSON, new ObjectMapper().findAndRegisterModules());
+
+        Assertions.assertAll("Read failures",
+                () -> Assertions.assertNull(csv.parse("firstName,gender"), "Header row must be consumed"),
+                () -> Assertions.assertEquals("Unknown gender X", FailureMessages.read(Assertions.assertThrows(Exception.class, () -> csv.parse("John,X"))), "Bad enum must not name the enum class"),
+                () -> Assertions.assertEquals("Invalid value for gender", FailureMessages.read(Assertions.assertThrows(Exception.class, () -> ndjson.parse("{\"gender\":\"X\"}"))), "Bad JSON value must name only the field"),
+                () -> Assertions.assertEquals("Malformed JSON", FailureMessages.read(Assertions.assertThrows(Exception.class, () -> ndjson.parse("{\"gender\""))), "Broken JSON must get a fixed message")
+        );
+    }
+}
@@ -0,0 +1,80 @@
+package kct.co.id.skilltest.service.impl;
+
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.event.UserActiveWindowEvent;
+import kct.co.id.skilltest.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class UserActiveWindowProcessorTests {
+    private final UserRepository userRepository = Mockito.mock(UserRepository.class);
+    private final List<UserActiveWindowEvent> published = new ArrayList<>();
+
+    private UserActiveWindowProcessor processor(String cron) {
+        PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        Mockito.when(transactionManager.getTransaction(Mockito.any())).thenReturn(new SimpleTransactionStatus());
+        UserActiveWindowProcessor processor = new UserActiveWindowProcessor();
+        ReflectionTestUtils.setField(processor, "userRepository", userRepository);
+        ReflectionTestUtils.setField(processor, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(processor, "applicationEventPublisher", (ApplicationEventPublisher) event -> published.add((UserActiveWindowEvent) event));
+        ReflectionTestUtils.setField(processor, "chunkSize", 2);
+        ReflectionTestUtils.setField(processor, "cron", cron);
+        processor.init();
+        return processor;
+    }
+
+    private static UserDTO user(Long id) {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setId(id);
+        return userDTO;
+    }
+
+    private static List<String> describe(List<UserActiveWindowEvent> events) {
+        return events.stream().map(event -> event.getType() + ":" + event.getId() + ":" + event.getDay()).toList();
+    }
+
+    @Test
+    public void processPublishesTransitionsOfTheDay() {
+        UserActiveWindowProcessor processor = processor("5 0 0 * * *");
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        Mockito.when(userRepository.findActivatingOn(Mockito.eq(day), Mockito.eq(0L), Mockito.any())).thenReturn(List.of(user(1L), user(4L)));
+        Mockito.when(userRepository.findActivatingOn(Mockito.eq(day), Mockito.eq(4L), Mockito.any())).thenReturn(List.of(user(7L)));
+        Mockito.when(userRepository.findExpiringAfter(Mockito.eq(day.minusDays(1)), Mockito.eq(0L), Mockito.any())).thenReturn(List.of(user(2L)));
+
+        processor.process(day);
+
+        Assertions.assertEquals(List.of("ACTIVATED:1:2024-03-01", "ACTIVATED:4:2024-03-01", "ACTIVATED:7:2024-03-01", "EXPIRED:2:2024-03-01"),
+                describe(published), "Users activating on the day and expired after the day before must be published once, chunk by chunk");
+    }
+
+    @Test
+    public void restartAfterRunDoesNotRepublishToday() {
+        LocalDate today = LocalDate.now();
+        Mockito.when(userRepository.findActivatingOn(Mockito.any(), Mockito.any(), Mockito.any())).thenAnswer(invocation -> {
+            LocalDate day = invocation.getArgument(0);
+            return List.of(user(day.toEpochDay()));
+        });
+        Mockito.when(userRepository.findExpiringAfter(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(List.of());
+
+        // today's midnight run has passed, as it has for any process started after it
+        processor("0 0 0 * * *").processDue();
+        List<String> afterRun = describe(published);
+        published.clear();
+        // today's run is still ahead, so the scheduler firing it must publish today
+        processor("59 59 23 * * *").processDue();
+
+        Assertions.assertAll("Restart",
+                () -> Assertions.assertEquals(List.of(), afterRun, "Process started after today's run must not publish today again"),
+                () -> Assertions.assertEquals(List.of("ACTIVATED:" + today.toEpochDay() + ":" + today), describe(published), "Process started before today's run must publish today")
+        );
+    }
+}
@@ -0,0 +1,92 @@
+package kct.co.id.skilltest.service.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kct.co.id.skilltest.UserFixtures;
+import kct.co.id.skilltest.entity.User;
+import kct.co.id.skilltest.enumerate.ExportFormat;
+import kct.co.id.skilltest.repository.UserRepository;
+import kct.co.id.skilltest.service.UserExportService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ranges of two ids, so even a handful of users is exported as several ranges scanned in parallel.
+ */
+@SpringBootTest(properties = "user.export.range-size=2")
+public class UserExportServiceImplTests {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final int USERS = 7;
+    @Autowired
+    private UserExportService userExportService;
+    @Autowired
+    private UserRepository userRepository;
+    private List<Long> ids;
+
+    @BeforeEach
+    public void seed() {
+        userRepository.deleteAll();
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(UserFixtures.user(20_000L + i));
+        }
+        ids = userRepository.saveAll(users).stream().map(User::getId).sorted().toList();
+    }
+
+    private String[] export(ExportFormat format, boolean ordered) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        userExportService.export(outputStream, format, ordered, 3);
+        return outputStream.toString(StandardCharsets.UTF_8).split("\n");
+    }
+
+    private static List<Long> ndjsonIds(String[] lines) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < lines.length - 1; i++) {
+            ids.add(((Number) OBJECT_MAPPER.readValue(lines[i], Map.class).get("id")).longValue());
+        }
+        return ids;
+    }
+
+    @Test
+    public void orderedNdjsonFollowsIds() throws Exception {
+        String[] lines = export(ExportFormat.NDJSON, true);
+        Map<String, Object> trailer = OBJECT_MAPPER.readValue(lines[lines.length - 1], new TypeReference<>() {
+        });
+
+        Assertions.assertAll("Ordered NDJSON",
+                () -> Assertions.assertEquals(ids, ndjsonIds(lines), "Ordered export must list every user in id order"),
+                () -> Assertions.assertEquals(USERS, ((Number) trailer.get("count")).intValue(), "Trailer must count the exported users"),
+                () -> Assertions.assertTrue(((Number) trailer.get("ranges")).intValue() >= 4, "Users must be scanned in several ranges"),
+                () -> Assertions.assertEquals(3, ((Number) trailer.get("parallelism")).intValue(), "Requested parallelism must be used")
+        );
+    }
+
+    @Test
+    public void unorderedNdjsonHasEveryUser() throws Exception {
+        String[] lines = export(ExportFormat.NDJSON, false);
+
+        Assertions.assertEquals(ids, ndjsonIds(lines).stream().sorted().toList(), "Unordered export must list every user once");
+    }
+
+    @Test
+    public void orderedCsvEndsWithTrailer() throws Exception {
+        String[] lines = export(ExportFormat.CSV, true);
+        List<Long> csvIds = Arrays.stream(lines, 1, lines.length - 1).map(line -> Long.valueOf(line.substring(0, line.indexOf(',')))).toList();
+
+        Assertions.assertAll("Ordered CSV",
+                () -> Assertions.assertTrue(lines[0].startsWith("id,firstName,lastName,"), "CSV must start with the header"),
+                () -> Assertions.assertEquals(ids, csvIds, "Ordered export must list every user in id order"),
+                () -> Assertions.assertTrue(lines[lines.length - 1].startsWith("#trailer=true count=" + USERS + " "), "CSV must end with the trailer comment")
+        );
+    }
+}
@@ -0,0 +1,204 @@
+package kct.co.id.skilltest.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.enumerate.OverflowPolicy;
+import kct.co.id.skilltest.event.UserChangedEvent;
+import kct.co.id.skilltest.model.UserChange;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Drain tasks are collected instead of started, so events pile up in a subscriber the way they do for a slow client.
+ * What the feed sent is read back from the emitter, which keeps sends until a response is attached to it.
+ */
+public class UserFeedServiceImplTests {
+    private static final Pattern EVENT_ID = Pattern.compile("id:\\d+-(\\d+)");
+    private final List<Runnable> drains = new ArrayList<>();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private UserFeedServiceImpl feed(OverflowPolicy overflowPolicy, int replaySize, int bufferSize) {
+        UserFeedServiceImpl feed = new UserFeedServiceImpl();
+        ReflectionTestUtils.setField(feed, "simpleAsyncTaskExecutorBuilder", new SimpleAsyncTaskExecutorBuilder());
+        ReflectionTestUtils.setField(feed, "threadPoolTaskExecutorBuilder", new ThreadPoolTaskExecutorBuilder());
+        ReflectionTestUtils.setField(feed, "environment", new MockEnvironment());
+        ReflectionTestUtils.setField(feed, "senderThreads", 1);
+        ReflectionTestUtils.setField(feed, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(feed, "replaySize", replaySize);
+        ReflectionTestUtils.setField(feed, "bufferSize", bufferSize);
+        ReflectionTestUtils.setField(feed, "overflowPolicy", overflowPolicy);
+        ReflectionTestUtils.setField(feed, "timeout", Duration.ofMinutes(1));
+        feed.init();
+        feed.shutdown();
+        ReflectionTestUtils.setField(feed, "executor", new SimpleAsyncTaskExecutor() {
+            @Override
+            public void execute(Runnable task) {
+                drains.add(task);
+            }
+        });
+        return feed;
+    }
+
+    private static void update(UserFeedServiceImpl feed, Long id, String firstName) {
+        UserDTO previous = new UserDTO();
+        previous.setId(id);
+        UserDTO current = new UserDTO();
+        current.setId(id);
+        current.setFirstName(firstName);
+        feed.onUserChanged(new UserChangedEvent(id, previous, current));
+    }
+
+    private void drain() {
+        // a drain task sends what is pending once and queues itself again if more arrived
+        while (!drains.isEmpty()) {
+            List<Runnable> tasks = new ArrayList<>(drains);
+            drains.clear();
+            tasks.forEach(Runnable::run);
+        }
+    }
+
+    private static String eventId(UserFeedServiceImpl feed, long sequence) {
+        return ReflectionTestUtils.getField(feed, "epoch") + "-" + sequence;
+    }
+
+    /**
+     * Sent events as {@code <event id>:<user id>:<first name>}, and {@code RESET} for a reset.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<String> sent(SseEmitter emitter) {
+        Set<ResponseBodyEmitter.DataWithMediaType> sent = (Set<ResponseBodyEmitter.DataWithMediaType>) ReflectionTestUtils.getField(emitter, "earlySendAttempts");
+        List<String> events = new ArrayList<>();
+        String eventId = null;
+        for (ResponseBodyEmitter.DataWithMediaType item : sent) {
+            if (item.getData() instanceof UserChange change) {
+                events.add(eventId + ":" + change.getId() + ":" + change.getData().getFirstName());
+            } else if (item.getData().toString().contains("event:RESET")) {
+                events.add("RESET");
+            } else {
+                Matcher matcher = EVENT_ID.matcher(item.getData().toString());
+                if (matcher.find()) {
+                    eventId = matcher.group(1);
+                }
+            }
+        }
+        return events;
+    }
+
+    @Test
+    public void coalescesPendingUpdatesOfOneUser() throws Exception {
+        UserFeedServiceImpl feed = feed(OverflowPolicy.DROP, 100, 10);
+        SseEmitter emitter = feed.subscribe(null);
+
+        update(feed, 1L, "First");
+        update(feed, 2L, "Other");
+        update(feed, 1L, "Latest");
+        drain();
+
+        Assertions.assertAll("Coalescing",
+                () -> Assertions.assertEquals(List.of("2:2:Other", "3:1:Latest"), sent(emitter), "Slow client must get only the latest state of a user"),
+                () -> Assertions.assertEquals(1.0, meterRegistry.get("users.feed.events").tag("outcome", "coalesced").counter().count(), "Coalesced event must be counted")
+        );
+    }
+
+    @Test
+    public void dropOverflowSendsReset() throws Exception {
+        UserFeedServiceImpl feed = feed(OverflowPolicy.DROP, 100, 2);
+        SseEmitter emitter = feed.subscribe(null);
+
+        update(feed, 1L, "One");
+        update(feed, 2L, "Two");
+        update(feed, 3L, "Three");
+        drain();
+
+        Assertions.assertAll("Drop overflow",
+                () -> Assertions.assertEquals(List.of("RESET", "2:2:Two", "3:3:Three"), sent(emitter), "Client that lost an event must be told to resync"),
+                () -> Assertions.assertEquals(1.0, meterRegistry.get("users.feed.events").tag("outcome", "dropped").counter().count(), "Dropped event must be counted")
+        );
+    }
+
+    @Test
+    public void disconnectOverflowClosesSubscriber() throws Exception {
+        UserFeedServiceImpl feed = feed(OverflowPolicy.DISCONNECT, 100, 2);
+        SseEmitter emitter = feed.subscribe(null);
+
+        update(feed, 1L, "One");
+        update(feed, 2L, "Two");
+        update(feed, 3L, "Three");
+        drain();
+
+        Assertions.assertAll("Disconnect overflow",
+                () -> Assertions.assertEquals(List.of(), sent(emitter), "Disconnected client must not get a partial stream"),
+                () -> Assertions.assertEquals(1.0, meterRegistry.get("users.feed.disconnected").counter().count(), "Disconnect must be counted"),
+                () -> Assertions.assertEquals(0.0, meterRegistry.get("users.feed.subscribers").gauge().value(), "Disconnected client must be unsubscribed")
+        );
+    }
+
+    @Test
+    public void replaysAfterLastEventId() throws Exception {
+        UserFeedServiceImpl feed = feed(OverflowPolicy.DROP, 100, 10);
+        update(feed, 1L, "One");
+        update(feed, 2L, "Two");
+        update(feed, 3L, "Three");
+
+        SseEmitter emitter = feed.subscribe(eventId(feed, 1));
+        update(feed, 4L, "Four");
+        drain();
+
+        Assertions.assertEquals(List.of("2:2:Two", "3:3:Three", "4:4:Four"), sent(emitter), "Reconnecting client must resume right after its last event");
+    }
+
+    @Test
+    public void resetsClientOutsideRing() throws Exception {
+        UserFeedServiceImpl feed = feed(OverflowPolicy.DROP, 2, 10);
+        update(feed, 1L, "One");
+        update(feed, 2L, "Two");
+        update(feed, 3L, "Three");
+        update(feed, 4L, "Four");
+
+        SseEmitter behind = feed.subscribe(eventId(feed, 1));
+        SseEmitter ahead = feed.subscribe(eventId(feed, 99));
+        drain();
+
+        Assertions.assertAll("Resume point outside the ring",
+                () -> Assertions.assertEquals(List.of("RESET"), sent(behind), "Client older than the ring must be told to resync"),
+                () -> Assertions.assertEquals(List.of("RESET"), sent(ahead), "Client ahead of the feed must be told to resync")
+        );
+        Assertions.assertThrows(ResponseStatusException.class, () -> feed.subscribe("abc"), "Malformed Last-Event-ID must be rejected");
+    }
+
+    @Test
+    public void resetsClientOfAnotherProcess() throws Exception {
+        UserFeedServiceImpl previous = feed(OverflowPolicy.DROP, 100, 10);
+        UserFeedServiceImpl restarted = feed(OverflowPolicy.DROP, 100, 10);
+        ReflectionTestUtils.setField(restarted, "epoch", (Long) ReflectionTestUtils.getField(previous, "epoch") + 1);
+        update(restarted, 1L, "One");
+        update(restarted, 2L, "Two");
+        update(restarted, 3L, "Three");
+
+        // sequence 1 is in the ring of the restarted feed, but it was a different event before the restart
+        SseEmitter reconnected = restarted.subscribe(eventId(previous, 1));
+        SseEmitter legacy = restarted.subscribe("1");
+        drain();
+
+        Assertions.assertAll("Resume point of another process",
+                () -> Assertions.assertEquals(List.of("RESET"), sent(reconnected), "Client of the previous process must be told to resync"),
+                () -> Assertions.assertEquals(List.of("RESET"), sent(legacy), "Client with an id without epoch must be told to resync")
+        );
+    }
+}
@@ -0,0 +1,101 @@
+package kct.co.id.skilltest.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kct.co.id.skilltest.dto.UserDTO;
+import kct.co.id.skilltest.model.BaseResponse;
+import kct.co.id.skilltest.model.UserPayload;
+import kct.co.id.skilltest.repository.UserRepository;
+import kct.co.id.skilltest.service.UserService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Restart of the write-behind queue: a journal left by a previous process is replayed through the user service.
+ */
+public class UserWriteBehindServiceImplTests {
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UserService userService = Mockito.mock(UserService.class);
+    @TempDir
+    private Path directory;
+
+    private UserWriteBehindServiceImpl service() throws Exception {
+        PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        Mockito.when(transactionManager.getTransaction(Mockito.any())).thenReturn(new SimpleTransactionStatus());
+        UserWriteBehindServiceImpl service = new UserWriteBehindServiceImpl();
+        ReflectionTestUtils.setField(service, "userService", userService);
+        ReflectionTestUtils.setField(service, "userRepository", Mockito.mock(UserRepository.class));
+        ReflectionTestUtils.setField(service, "transactionTemplate", new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(service, "simpleAsyncTaskExecutorBuilder", new SimpleAsyncTaskExecutorBuilder());
+        ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(service, "partitionCount", 1);
+        ReflectionTestUtils.setField(service, "capacity", 100);
+        ReflectionTestUtils.setField(service, "batchSize", 10);
+        ReflectionTestUtils.setField(service, "flushInterval", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(service, "maxAttempts", 5);
+        ReflectionTestUtils.setField(service, "journalDir", directory.toString());
+        ReflectionTestUtils.setField(service, "fsync", true);
+        ReflectionTestUtils.setField(service, "compactThreshold", DataSize.ofMegabytes(16));
+        service.init();
+        return service;
+    }
+
+    private static UserPayload payload(String firstName) {
+        UserPayload payload = new UserPayload();
+        payload.setFirstName(firstName);
+        return payload;
+    }
+
+    @Test
+    public void replaysJournalAfterRestart() throws Exception {
+        Path path = directory.resolve("partition-0.ndjson");
+        try (WriteBehindJournal journal = new WriteBehindJournal(path, objectMapper, true)) {
+            journal.append(WriteBehindJournal.Entry.update(1, 7L, payload("Flushed"), 3L));
+            journal.append(WriteBehindJournal.Entry.ack(1));
+            journal.append(WriteBehindJournal.Entry.update(2, 8L, payload("Stale"), 5L));
+            journal.append(WriteBehindJournal.Entry.update(3, 8L, payload("Latest"), 5L));
+            journal.append(WriteBehindJournal.Entry.update(4, 9L, payload("Retried"), 2L).retried(5));
+        }
+        Mockito.when(userService.put(Mockito.any(), Mockito.any(), Mockito.any())).thenAnswer(invocation -> {
+            UserDTO userDTO = new UserDTO();
+            userDTO.setVersion(invocation.<Long>getArgument(2) + 1);
+            return BaseResponse.<UserDTO>builder().success(true).data(userDTO).build();
+        });
+
+        UserWriteBehindServiceImpl service = service();
+        long recovered = service.getStatus().getData().getPending();
+        service.afterSingletonsInstantiated();
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (service.getStatus().getData().getFlushed() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10L);
+        }
+        service.shutdown();
+
+        List<WriteBehindJournal.Entry> left;
+        try (WriteBehindJournal journal = new WriteBehindJournal(path, objectMapper, true)) {
+            left = journal.recover();
+        }
+        Assertions.assertAll("Restart",
+                () -> Assertions.assertEquals(2L, recovered, "Updates past the ack must be queued again, one per user"),
+                () -> Mockito.verify(userService).put(8L, payload("Latest"), 5L),
+                () -> Mockito.verify(userService).put(9L, payload("Retried"), 2L),
+                () -> Mockito.verify(userService, Mockito.never()).put(Mockito.eq(7L), Mockito.any(), Mockito.any()),
+                () -> Assertions.assertEquals(List.of(), left, "Replayed updates must be acked once flushed")
+        );
+    }
+}
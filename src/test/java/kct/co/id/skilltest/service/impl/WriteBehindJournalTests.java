@@ -0,0 +1,121 @@
+package kct.co.id.skilltest.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kct.co.id.skilltest.model.UserPayload;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Every test closes the journal and opens it again, the way a restart does, before it checks what is replayed.
+ */
+public class WriteBehindJournalTests {
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    @TempDir
+    private Path directory;
+
+    private Path path() {
+        return directory.resolve("partition-0.ndjson");
+    }
+
+    private WriteBehindJournal open() throws IOException {
+        return new WriteBehindJournal(path(), objectMapper, true);
+    }
+
+    private List<WriteBehindJournal.Entry> reopen(WriteBehindJournal journal) throws IOException {
+        journal.close();
+        try (WriteBehindJournal reopened = open()) {
+            return reopened.recover();
+        }
+    }
+
+    private static WriteBehindJournal.Entry update(long sequence, Long id, String firstName) {
+        UserPayload payload = new UserPayload();
+        payload.setFirstName(firstName);
+        return WriteBehindJournal.Entry.update(sequence, id, payload, 1L);
+    }
+
+    @Test
+    public void replaysUpdatesPastTheLastAck() throws Exception {
+        WriteBehindJournal journal = open();
+        journal.append(update(1, 1L, "One"));
+        journal.append(update(2, 2L, "Two"));
+        journal.append(WriteBehindJournal.Entry.ack(2));
+        journal.append(update(3, 3L, "Three"));
+
+        Assertions.assertEquals(List.of(update(3, 3L, "Three")), reopen(journal), "Only updates after the ack must be replayed");
+    }
+
+    @Test
+    public void replaysRetriedAndRebasedUpdates() throws Exception {
+        WriteBehindJournal journal = open();
+        WriteBehindJournal.Entry failed = update(1, 1L, "Failed");
+        WriteBehindJournal.Entry queuedDuringFlush = update(2, 2L, "Queued");
+        journal.append(failed);
+        journal.append(queuedDuringFlush);
+        // a flush through sequence 1 failed the first update and applied version 1 of user 2 under the second one
+        WriteBehindJournal.Entry retried = failed.retried(3);
+        WriteBehindJournal.Entry rebased = queuedDuringFlush.rebased(4, 2L);
+        journal.append(retried);
+        journal.append(rebased);
+        journal.append(WriteBehindJournal.Entry.ack(1));
+
+        List<WriteBehindJournal.Entry> replayed = reopen(journal);
+        Assertions.assertAll("Retried and rebased",
+                () -> Assertions.assertEquals(List.of(queuedDuringFlush, retried, rebased), replayed, "Updates appended again after a flush must outlive its ack"),
+                () -> Assertions.assertEquals(1, replayed.get(1).attemptCount(), "Retried update must keep its attempt count"),
+                () -> Assertions.assertEquals(2L, replayed.get(2).version(), "Rebased update must keep its new version")
+        );
+    }
+
+    @Test
+    public void rewriteKeepsOnlyTheGivenUpdates() throws Exception {
+        WriteBehindJournal journal = open();
+        journal.append(update(1, 1L, "One"));
+        journal.append(update(2, 2L, "Two"));
+        journal.rewrite(List.of(update(2, 2L, "Two")));
+        journal.append(update(3, 3L, "Three"));
+
+        Assertions.assertAll("Rewrite",
+                () -> Assertions.assertEquals(List.of(update(2, 2L, "Two"), update(3, 3L, "Three")), reopen(journal), "Rewritten journal must replay the kept updates and later appends"),
+                () -> Assertions.assertFalse(Files.exists(directory.resolve("partition-0.ndjson.tmp")), "Temporary file must be moved over the journal")
+        );
+    }
+
+    @Test
+    public void truncateDropsEverything() throws Exception {
+        WriteBehindJournal journal = open();
+        journal.append(update(1, 1L, "One"));
+        journal.append(WriteBehindJournal.Entry.ack(1));
+        journal.truncate();
+
+        Assertions.assertEquals(List.of(), reopen(journal), "Truncated journal must replay nothing");
+    }
+
+    @Test
+    public void ignoresTornLastRecord() throws Exception {
+        WriteBehindJournal journal = open();
+        journal.append(update(1, 1L, "One"));
+        journal.close();
+        // a crash in the middle of the next append
+        Files.write(path(), "{\"sequence\":2,\"id\":2,\"payl".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (WriteBehindJournal reopened = open()) {
+            Assertions.assertEquals(List.of(update(1, 1L, "One")), reopened.recover(), "Complete records before a torn one must be replayed");
+        }
+    }
+
+    @Test
+    public void rejectsASecondOpen() throws Exception {
+        try (WriteBehindJournal journal = open()) {
+            Assertions.assertThrows(IllegalStateException.class, this::open, "Journal must not be shared by two writers");
+        }
+    }
+}